@@ -0,0 +1,24 @@
+    #type vertex
+    #version 330 core
+
+    out vec2 fTexCoords;
+
+    void main(){
+        // No vertex buffer, the four corners of the screen come from the vertex number (triangle strip)
+        vec2 position = vec2(float(gl_VertexID & 1), float(gl_VertexID >> 1));
+        fTexCoords = position;
+        gl_Position = vec4(position * 2.0 - 1.0, 0.0, 1.0);
+    }
+
+    #type fragment
+    #version 330 core
+
+    in vec2 fTexCoords;
+
+    uniform sampler2D uTexture;
+
+    out vec4 color;
+
+    void main(){
+        color = texture(uTexture, fTexCoords);
+    }
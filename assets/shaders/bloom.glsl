@@ -0,0 +1,57 @@
+    #type vertex
+    #version 330 core
+
+    out vec2 fTexCoords;
+
+    void main(){
+        vec2 position = vec2(float(gl_VertexID & 1), float(gl_VertexID >> 1));
+        fTexCoords = position;
+        gl_Position = vec4(position * 2.0 - 1.0, 0.0, 1.0);
+    }
+
+    #type fragment
+    #version 330 core
+
+    in vec2 fTexCoords;
+
+    uniform sampler2D uSource;
+    uniform vec2 uTexelSize; // 1 / size of the source
+    uniform int uMode; // 0 keep the bright parts and downsample, 1 downsample, 2 upsample
+    uniform float uThreshold;
+
+    out vec4 color;
+
+    vec3 downsample(){
+        // Four bilinear taps cover a 4x4 block of the source
+        vec4 offset = uTexelSize.xyxy * vec4(-1.0, -1.0, 1.0, 1.0);
+        return 0.25 * (texture(uSource, fTexCoords + offset.xy).rgb + texture(uSource, fTexCoords + offset.zy).rgb
+                     + texture(uSource, fTexCoords + offset.xw).rgb + texture(uSource, fTexCoords + offset.zw).rgb);
+    }
+
+    vec3 upsample(){
+        // 3x3 tent filter, the result is added to the bigger level
+        vec4 offset = uTexelSize.xyxy * vec4(1.0, 1.0, -1.0, 0.0);
+        vec3 sum = texture(uSource, fTexCoords - offset.xy).rgb;
+        sum += texture(uSource, fTexCoords - offset.wy).rgb * 2.0;
+        sum += texture(uSource, fTexCoords - offset.zy).rgb;
+        sum += texture(uSource, fTexCoords + offset.zw).rgb * 2.0;
+        sum += texture(uSource, fTexCoords).rgb * 4.0;
+        sum += texture(uSource, fTexCoords + offset.xw).rgb * 2.0;
+        sum += texture(uSource, fTexCoords + offset.zy).rgb;
+        sum += texture(uSource, fTexCoords + offset.wy).rgb * 2.0;
+        sum += texture(uSource, fTexCoords + offset.xy).rgb;
+        return sum / 16.0;
+    }
+
+    void main(){
+        if (uMode == 0) {
+            vec3 source = downsample();
+            float brightness = max(source.r, max(source.g, source.b));
+            float contribution = max(brightness - uThreshold, 0.0) / max(brightness, 0.0001);
+            color = vec4(source * contribution, 1.0);
+        } else if (uMode == 1) {
+            color = vec4(downsample(), 1.0);
+        } else {
+            color = vec4(upsample(), 1.0);
+        }
+    }
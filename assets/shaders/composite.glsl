@@ -0,0 +1,25 @@
+    #type vertex
+    #version 330 core
+
+    out vec2 fTexCoords;
+
+    void main(){
+        vec2 position = vec2(float(gl_VertexID & 1), float(gl_VertexID >> 1));
+        fTexCoords = position;
+        gl_Position = vec4(position * 2.0 - 1.0, 0.0, 1.0);
+    }
+
+    #type fragment
+    #version 330 core
+
+    in vec2 fTexCoords;
+
+    uniform sampler2D uScene;
+    uniform sampler2D uLight; // ambient plus every light, can be a lower resolution than the scene
+
+    out vec4 color;
+
+    void main(){
+        vec4 scene = texture(uScene, fTexCoords);
+        color = vec4(scene.rgb * texture(uLight, fTexCoords).rgb, scene.a);
+    }
@@ -0,0 +1,32 @@
+    #type vertex
+    #version 330 core
+    // One instance per light, the quad around it comes from the vertex number (triangle strip)
+    layout (location=0) in vec3 aLight; // x, y, radius in world units
+    layout (location=1) in vec4 aColor; // rgb, intensity
+
+    uniform mat4 uProjectionMatrix;
+    uniform mat4 uViewMatrix;
+
+    out vec2 fOffset; // -1 to 1 across the light
+    out vec3 fColor;
+
+    void main(){
+        vec2 corner = vec2(float(gl_VertexID & 1), float(gl_VertexID >> 1)) * 2.0 - 1.0;
+        fOffset = corner;
+        fColor = aColor.rgb * aColor.a;
+        gl_Position = uProjectionMatrix * uViewMatrix * vec4(aLight.xy + corner * aLight.z, 0.0, 1.0);
+    }
+
+    #type fragment
+    #version 330 core
+
+    in vec2 fOffset;
+    in vec3 fColor;
+
+    out vec4 color;
+
+    void main(){
+        // Smooth falloff that reaches 0 at the radius, added on top of the other lights
+        float falloff = clamp(1.0 - dot(fOffset, fOffset), 0.0, 1.0);
+        color = vec4(fColor * falloff * falloff, 1.0);
+    }
@@ -0,0 +1,34 @@
+    #type vertex
+    #version 330 core
+    layout (location=0) in vec2 aPos;
+    layout (location=1) in vec2 aTexCoords;
+    layout (location=2) in vec4 aColor;
+
+    uniform mat4 uProjectionMatrix;
+    uniform mat4 uViewMatrix;
+
+    out vec2 fTexCoords;
+    out vec4 fColor;
+
+    void main(){
+        fTexCoords = aTexCoords;
+        fColor = aColor;
+        gl_Position = uProjectionMatrix * uViewMatrix * vec4(aPos, 0.0, 1.0);
+    }
+
+    #type fragment
+    #version 330 core
+
+    in vec2 fTexCoords;
+    in vec4 fColor;
+
+    uniform sampler2D uFontAtlas; // signed distance field, the outline of a glyph sits at 0.5
+
+    out vec4 color;
+
+    void main(){
+        float distance = texture(uFontAtlas, fTexCoords).r;
+        float smoothing = fwidth(distance); // about one pixel on screen, at any text size
+        float alpha = smoothstep(0.5 - smoothing, 0.5 + smoothing, distance);
+        color = vec4(fColor.rgb, fColor.a * alpha);
+    }
@@ -0,0 +1,35 @@
+    #type vertex
+    #version 330 core
+
+    out vec2 fTexCoords;
+
+    void main(){
+        vec2 position = vec2(float(gl_VertexID & 1), float(gl_VertexID >> 1));
+        fTexCoords = position;
+        gl_Position = vec4(position * 2.0 - 1.0, 0.0, 1.0);
+    }
+
+    #type fragment
+    #version 330 core
+
+    in vec2 fTexCoords;
+
+    uniform sampler2D uScene;
+    uniform sampler2D uBloom;
+    uniform float uBloomIntensity; // 0 when bloom is off
+    uniform float uExposure;
+    uniform int uTonemap; // 0 only clamps, for when tone mapping is off
+
+    out vec4 color;
+
+    // Filmic curve fitted to ACES by Krzysztof Narkowicz
+    vec3 aces(vec3 x){
+        return clamp((x * (2.51 * x + 0.03)) / (x * (2.43 * x + 0.59) + 0.14), 0.0, 1.0);
+    }
+
+    void main(){
+        vec4 scene = texture(uScene, fTexCoords);
+        vec3 hdr = scene.rgb + texture(uBloom, fTexCoords).rgb * uBloomIntensity;
+        vec3 result = uTonemap == 1 ? aces(hdr * uExposure) : clamp(hdr, 0.0, 1.0);
+        color = vec4(result, scene.a);
+    }
@@ -0,0 +1,33 @@
+package audio;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Turns a compressed sound file into 16-bit interleaved pcm, a block at a time.
+ */
+public interface AudioDecoder {
+
+    int getChannels();
+
+    int getSampleRate();
+
+    /**
+     * @return length of the whole sound in frames (one sample per channel), -1 if it is not known
+     */
+    int getLengthInFrames();
+
+    /**
+     * Decodes the next block into pcm, starting at its position. The position is left untouched.
+     *
+     * @param pcm where to write the interleaved samples
+     * @return number of frames written, 0 at the end of the sound
+     */
+    int read(ShortBuffer pcm);
+
+    /**
+     * Starts decoding from the beginning again
+     */
+    void rewind();
+
+    void close();
+}
@@ -0,0 +1,72 @@
+package audio;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Everything the audio engine needs from the sound hardware.
+ * <p>
+ * Buffers and sources are plain int handles, like in OpenAL. {@link OpenALDevice} plays through the speakers,
+ * {@link NullAudioDevice} mixes offline so the engine can run without any sound hardware.
+ * Handles are never 0, 0 means "no buffer" or "no source".
+ */
+public interface AudioDevice {
+
+    int createBuffer();
+
+    /**
+     * Copies 16-bit interleaved pcm into the buffer. The pcm can be reused as soon as this returns.
+     *
+     * @param buffer     buffer handle
+     * @param channels   1 for mono, 2 for stereo
+     * @param pcm        samples from the position to the limit
+     * @param sampleRate samples per second per channel
+     */
+    void bufferData(int buffer, int channels, ShortBuffer pcm, int sampleRate);
+
+    void deleteBuffer(int buffer);
+
+    int createSource();
+
+    void deleteSource(int source);
+
+    /**
+     * Attaches a single buffer to the source, 0 detaches whatever is attached or queued.
+     */
+    void setBuffer(int source, int buffer);
+
+    /**
+     * Adds a buffer to the end of the queue of a streaming source
+     */
+    void queueBuffer(int source, int buffer);
+
+    /**
+     * @return a buffer the source has finished playing, or 0 if there is none
+     */
+    int unqueueBuffer(int source);
+
+    /**
+     * @return number of queued buffers the source has finished playing
+     */
+    int getProcessedBuffers(int source);
+
+    /**
+     * @return number of buffers in the queue, processed or not
+     */
+    int getQueuedBuffers(int source);
+
+    void setGain(int source, float gain);
+
+    void setPitch(int source, float pitch);
+
+    void setLooping(int source, boolean looping);
+
+    void play(int source);
+
+    void pause(int source);
+
+    void stop(int source);
+
+    boolean isPlaying(int source);
+
+    void close();
+}
@@ -0,0 +1,205 @@
+package audio;
+
+import org.lwjgl.BufferUtils;
+
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point of the audio system.
+ * <p>
+ * There are two kinds of sound:
+ * <ul>
+ *     <li>
+ *         <b>Sounds-</b> short effects, decoded once into a buffer that is shared by everything that plays them.
+ *         They play on a fixed {@link VoicePool} of sources.
+ *     </li>
+ *     <li>
+ *         <b>Music-</b> long tracks, streamed through a {@link MusicStream} and decoded on a background thread.
+ *     </li>
+ * </ul>
+ * The engine can run on the real OpenAL device or on a {@link NullAudioDevice}, for when there is no sound hardware
+ * or for running headless. Headless engines decode music in {@link #update()}, so they behave the same every run.
+ */
+public class AudioEngine {
+    public static final int DEFAULT_VOICES = 24;
+
+    private final AudioDevice device;
+    private final VoicePool voices;
+    private final StreamDecoder streamDecoder; // null when music is decoded in update
+    private final Map<String, Sound> sounds = new HashMap<>();
+    private final List<MusicStream> streams = new ArrayList<>();
+
+    /**
+     * @param device             where the sound goes
+     * @param voiceCount         number of sound effects that can play at the same time
+     * @param backgroundDecoding decode music on a background thread, otherwise it is decoded in update
+     */
+    public AudioEngine(AudioDevice device, int voiceCount, boolean backgroundDecoding) {
+        this.device = device;
+        this.voices = new VoicePool(device, voiceCount);
+        this.streamDecoder = backgroundDecoding ? new StreamDecoder() : null;
+    }
+
+    /**
+     * @return an engine playing through the default OpenAL device
+     */
+    public static AudioEngine createOpenAL() {
+        return new AudioEngine(new OpenALDevice(), DEFAULT_VOICES, true);
+    }
+
+    /**
+     * @return an engine without sound output, see {@link NullAudioDevice}
+     */
+    public static AudioEngine createHeadless() {
+        return new AudioEngine(new NullAudioDevice(), DEFAULT_VOICES, false);
+    }
+
+    /**
+     * Loads a sound effect from an .ogg file, or returns it right away if it was loaded before.
+     *
+     * @param filePath string path to the sound file
+     * @return Sound
+     */
+    public Sound loadSound(String filePath) {
+        Sound sound = sounds.get(filePath);
+        if (sound != null) {
+            return sound;
+        }
+        return loadSound(filePath, new VorbisDecoder(filePath));
+    }
+
+    /**
+     * Decodes the whole sound into a new buffer and caches it under the name. The decoder is closed afterwards.
+     * A sound that was loaded under the same name before is replaced, the voices still playing it are stopped.
+     *
+     * @param name    name to find the sound by with {@link #getSound(String)}
+     * @param decoder decoder of the sound
+     * @return Sound
+     */
+    public Sound loadSound(String name, AudioDecoder decoder) {
+        int channels = decoder.getChannels();
+        int length = decoder.getLengthInFrames();
+        ShortBuffer pcm = BufferUtils.createShortBuffer((length > 0 ? length : MusicStream.CHUNK_FRAMES) * channels);
+
+        int frames = 0;
+        int read;
+        while (frames != length) { // with a known length, stop once it is read instead of growing for the end of the stream
+            if (!pcm.hasRemaining()) {
+                // Length was unknown or wrong, make room for more
+                ShortBuffer bigger = BufferUtils.createShortBuffer(pcm.capacity() * 2);
+                pcm.flip();
+                bigger.put(pcm);
+                pcm = bigger;
+            }
+            read = decoder.read(pcm);
+            if (read == 0) {
+                break;
+            }
+            pcm.position(pcm.position() + read * channels);
+            frames += read;
+        }
+        pcm.flip();
+        decoder.close();
+
+        int buffer = device.createBuffer();
+        device.bufferData(buffer, channels, pcm, decoder.getSampleRate());
+
+        Sound sound = new Sound(name, buffer, channels, decoder.getSampleRate(), frames);
+        Sound previous = sounds.put(name, sound);
+        if (previous != null) {
+            // A buffer that is still attached to a source can not be deleted
+            voices.release(previous);
+            device.deleteBuffer(previous.getBufferID());
+        }
+        return sound;
+    }
+
+    public Sound getSound(String name) {
+        return sounds.get(name);
+    }
+
+    /**
+     * Plays a sound once at normal volume and speed, with the lowest priority
+     *
+     * @return handle of the voice, or {@link VoicePool#NO_VOICE}
+     */
+    public long play(Sound sound) {
+        return voices.play(sound, 0, 1.0f, 1.0f, false);
+    }
+
+    /**
+     * @see VoicePool#play(Sound, int, float, float, boolean)
+     */
+    public long play(Sound sound, int priority, float gain, float pitch, boolean looping) {
+        return voices.play(sound, priority, gain, pitch, looping);
+    }
+
+    /**
+     * Opens an .ogg file for streaming, it does not start playing until {@link MusicStream#play()}
+     *
+     * @param filePath string path to the music file
+     * @return MusicStream
+     */
+    public MusicStream openMusic(String filePath) {
+        return openMusic(new VorbisDecoder(filePath));
+    }
+
+    public MusicStream openMusic(AudioDecoder decoder) {
+        MusicStream stream = new MusicStream(device, decoder, streamDecoder);
+        streams.add(stream);
+        if (streamDecoder != null) {
+            streamDecoder.add(stream);
+        }
+        return stream;
+    }
+
+    public void closeMusic(MusicStream stream) {
+        if (streamDecoder != null) {
+            streamDecoder.remove(stream);
+        }
+        streams.remove(stream);
+        stream.close();
+    }
+
+    /**
+     * Keeps the music streams going, call once a frame.
+     */
+    public void update() {
+        for (int i = 0; i < streams.size(); i++) {
+            MusicStream stream = streams.get(i);
+            if (streamDecoder == null) {
+                while (stream.decodeAhead()) {
+                    // decode until the ring is full
+                }
+            }
+            stream.update();
+        }
+    }
+
+    public AudioDevice getDevice() {
+        return device;
+    }
+
+    public VoicePool getVoices() {
+        return voices;
+    }
+
+    public void close() {
+        if (streamDecoder != null) {
+            streamDecoder.shutdown();
+        }
+        while (!streams.isEmpty()) {
+            closeMusic(streams.get(streams.size() - 1));
+        }
+        voices.delete();
+        for (Sound sound : sounds.values()) {
+            device.deleteBuffer(sound.getBufferID());
+        }
+        sounds.clear();
+        device.close();
+    }
+}
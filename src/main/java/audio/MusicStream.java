@@ -0,0 +1,234 @@
+package audio;
+
+import org.lwjgl.BufferUtils;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Plays a long track without ever decoding all of it.
+ * <p>
+ * The source plays from a small ring of buffers. Whenever it finishes one, the buffer is refilled with the next
+ * chunk of pcm and queued again. The chunks are decoded ahead of time by the {@link StreamDecoder} thread,
+ * so the game loop only copies finished pcm to the device and never waits for the decoder.
+ * <p>
+ * {@link #decodeAhead()} runs on the decoder thread, everything else on the thread that calls {@link #update()}.
+ */
+public class MusicStream {
+    public static final int BUFFER_COUNT = 4; // buffers on the source
+    public static final int CHUNK_COUNT = 4; // chunks the decoder can be ahead
+    public static final int CHUNK_FRAMES = 8192; // about 0.2 seconds at 44.1kHz
+
+    private final AudioDevice device;
+    private final AudioDecoder decoder;
+    private final StreamDecoder streamDecoder; // null when decoding happens in update
+    private final int channels, sampleRate;
+
+    private final int source;
+    private final int[] freeBuffers = new int[BUFFER_COUNT]; // buffers that are not queued on the source
+    private int freeCount;
+
+    // Ring of decoded pcm, written by the decoder, read by update
+    private final ShortBuffer[] chunks = new ShortBuffer[CHUNK_COUNT];
+    private final int[] chunkFrames = new int[CHUNK_COUNT];
+    private long written, read; // guarded by this
+    private int epoch; // goes up on stop, so a chunk that was being decoded at that moment gets thrown away
+    private boolean rewindPending, endOfStream;
+    private volatile boolean closed;
+
+    private volatile boolean looping;
+    private boolean playing, paused;
+
+    MusicStream(AudioDevice device, AudioDecoder decoder, StreamDecoder streamDecoder) {
+        this.device = device;
+        this.decoder = decoder;
+        this.streamDecoder = streamDecoder;
+        this.channels = decoder.getChannels();
+        this.sampleRate = decoder.getSampleRate();
+
+        this.source = device.createSource();
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            freeBuffers[freeCount++] = device.createBuffer();
+        }
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            chunks[i] = BufferUtils.createShortBuffer(CHUNK_FRAMES * channels);
+        }
+    }
+
+    /**
+     * Decodes the next chunk if there is room for it in the ring.
+     *
+     * @return true if there may be more work to do right away
+     */
+    boolean decodeAhead() {
+        int slot, startEpoch;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (rewindPending) {
+                decoder.rewind();
+                rewindPending = false;
+                endOfStream = false;
+            }
+            if (endOfStream || written - read >= CHUNK_COUNT) {
+                return false;
+            }
+            slot = (int) (written % CHUNK_COUNT);
+            startEpoch = epoch;
+        }
+
+        // Decode outside of the lock, update can keep reading the other chunks in the meantime
+        ShortBuffer chunk = chunks[slot];
+        int frames;
+        synchronized (decoder) {
+            if (closed) {
+                return false;
+            }
+            chunk.clear();
+            frames = decoder.read(chunk);
+            if (frames == 0 && looping) {
+                decoder.rewind();
+                frames = decoder.read(chunk);
+            }
+        }
+
+        synchronized (this) {
+            if (epoch != startEpoch) {
+                return true;
+            }
+            if (frames == 0) {
+                endOfStream = true;
+                return false;
+            }
+            chunkFrames[slot] = frames;
+            written++;
+            return true;
+        }
+    }
+
+    /**
+     * Refills the buffers the source has finished with. Call once a frame.
+     */
+    public void update() {
+        if (!playing) {
+            return;
+        }
+
+        int buffer;
+        while ((buffer = device.unqueueBuffer(source)) != 0) {
+            freeBuffers[freeCount++] = buffer;
+        }
+
+        boolean consumed = false;
+        while (freeCount > 0) {
+            int slot;
+            synchronized (this) {
+                if (read == written) {
+                    break;
+                }
+                slot = (int) (read % CHUNK_COUNT);
+            }
+
+            ShortBuffer chunk = chunks[slot];
+            chunk.position(0).limit(chunkFrames[slot] * channels);
+            buffer = freeBuffers[--freeCount];
+            device.bufferData(buffer, channels, chunk, sampleRate);
+            device.queueBuffer(source, buffer);
+
+            synchronized (this) {
+                read++;
+            }
+            consumed = true;
+        }
+
+        if (consumed && streamDecoder != null) {
+            streamDecoder.wake();
+        }
+
+        if (!paused && !device.isPlaying(source)) {
+            if (device.getQueuedBuffers(source) > 0) {
+                // Either the first buffers just got queued, or the decoder fell behind and the source ran dry
+                device.play(source);
+            } else if (isEndOfStream()) {
+                playing = false;
+            }
+        }
+    }
+
+    private synchronized boolean isEndOfStream() {
+        return endOfStream && read == written;
+    }
+
+    public void play() {
+        if (paused) {
+            paused = false;
+            device.play(source);
+            return;
+        }
+        playing = true;
+        update();
+    }
+
+    public void pause() {
+        if (playing && !paused) {
+            paused = true;
+            device.pause(source);
+        }
+    }
+
+    /**
+     * Stops playing and goes back to the start of the track
+     */
+    public void stop() {
+        device.stop(source);
+        int buffer;
+        while ((buffer = device.unqueueBuffer(source)) != 0) {
+            freeBuffers[freeCount++] = buffer;
+        }
+
+        synchronized (this) {
+            read = written; // drop everything that was decoded ahead
+            epoch++;
+            rewindPending = true;
+            endOfStream = false;
+        }
+        playing = false;
+        paused = false;
+
+        if (streamDecoder != null) {
+            streamDecoder.wake();
+        }
+    }
+
+    /**
+     * @return true from {@link #play()} until the track ends or is stopped, also while paused
+     */
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    public void setGain(float gain) {
+        device.setGain(source, gain);
+    }
+
+    void close() {
+        stop();
+        synchronized (this) {
+            closed = true;
+        }
+        // Waits for a decode that is still running, the decoder thread will not start another one
+        synchronized (decoder) {
+            decoder.close();
+        }
+
+        device.deleteSource(source);
+        for (int i = 0; i < freeCount; i++) {
+            device.deleteBuffer(freeBuffers[i]);
+        }
+        freeCount = 0;
+    }
+}
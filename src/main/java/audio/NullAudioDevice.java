@@ -0,0 +1,241 @@
+package audio;
+
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An output device without any sound hardware behind it.
+ * <p>
+ * Nothing plays on its own, time only moves when {@link #mix(short[], int)} is called. That mixes every playing
+ * source into a stereo block, consuming buffers and queues just like a real device would. This way streaming,
+ * voice stealing and the mix itself can be run offline, headless, and faster than real time.
+ * Pitch is stored but ignored, every buffer is mixed at the output sample rate.
+ */
+public class NullAudioDevice implements AudioDevice {
+    private static final int MAX_QUEUE = 64;
+
+    // Buffers, index is handle - 1
+    private final List<short[]> bufferSamples = new ArrayList<>();
+    private final List<Integer> bufferChannels = new ArrayList<>();
+
+    // Sources, index is handle - 1
+    private final List<SourceState> sources = new ArrayList<>();
+
+    private int[] accumulator = new int[0];
+    private long framesMixed = 0;
+
+    @Override
+    public int createBuffer() {
+        bufferSamples.add(new short[0]);
+        bufferChannels.add(1);
+        return bufferSamples.size();
+    }
+
+    @Override
+    public void bufferData(int buffer, int channels, ShortBuffer pcm, int sampleRate) {
+        short[] samples = new short[pcm.remaining()];
+        pcm.duplicate().get(samples);
+        bufferSamples.set(buffer - 1, samples);
+        bufferChannels.set(buffer - 1, channels);
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        bufferSamples.set(buffer - 1, new short[0]);
+    }
+
+    @Override
+    public int createSource() {
+        sources.add(new SourceState());
+        return sources.size();
+    }
+
+    @Override
+    public void deleteSource(int source) {
+        stop(source);
+        setBuffer(source, 0);
+    }
+
+    private SourceState source(int source) {
+        return sources.get(source - 1);
+    }
+
+    @Override
+    public void setBuffer(int source, int buffer) {
+        SourceState state = source(source);
+        state.queueStart = 0;
+        state.queueLength = 0;
+        state.processed = 0;
+        state.cursor = 0;
+        if (buffer != 0) {
+            state.queue[0] = buffer;
+            state.queueLength = 1;
+        }
+    }
+
+    @Override
+    public void queueBuffer(int source, int buffer) {
+        SourceState state = source(source);
+        if (state.queueLength == MAX_QUEUE) {
+            throw new IllegalStateException("Queue of source " + source + " is full");
+        }
+        state.queue[(state.queueStart + state.queueLength) % MAX_QUEUE] = buffer;
+        state.queueLength++;
+    }
+
+    @Override
+    public int unqueueBuffer(int source) {
+        SourceState state = source(source);
+        if (state.processed == 0) {
+            return 0;
+        }
+        int buffer = state.queue[state.queueStart];
+        state.queueStart = (state.queueStart + 1) % MAX_QUEUE;
+        state.queueLength--;
+        state.processed--;
+        return buffer;
+    }
+
+    @Override
+    public int getProcessedBuffers(int source) {
+        return source(source).processed;
+    }
+
+    @Override
+    public int getQueuedBuffers(int source) {
+        return source(source).queueLength;
+    }
+
+    @Override
+    public void setGain(int source, float gain) {
+        source(source).gain = gain;
+    }
+
+    @Override
+    public void setPitch(int source, float pitch) {
+        source(source).pitch = pitch;
+    }
+
+    @Override
+    public void setLooping(int source, boolean looping) {
+        source(source).looping = looping;
+    }
+
+    @Override
+    public void play(int source) {
+        SourceState state = source(source);
+        if (!state.playing && !state.paused) {
+            // Like OpenAL, playing a stopped source starts over from the first unprocessed buffer
+            state.cursor = 0;
+        }
+        state.playing = state.queueLength > state.processed;
+        state.paused = false;
+    }
+
+    @Override
+    public void pause(int source) {
+        SourceState state = source(source);
+        if (state.playing) {
+            state.playing = false;
+            state.paused = true;
+        }
+    }
+
+    @Override
+    public void stop(int source) {
+        SourceState state = source(source);
+        state.playing = false;
+        state.paused = false;
+        state.cursor = 0;
+        // Everything in the queue counts as processed once stopped
+        state.processed = state.queueLength;
+    }
+
+    @Override
+    public boolean isPlaying(int source) {
+        return source(source).playing;
+    }
+
+    /**
+     * Mixes the next block of every playing source into out and moves time forward.
+     *
+     * @param out    interleaved stereo samples, at least frames * 2 long
+     * @param frames number of stereo frames to mix
+     */
+    public void mix(short[] out, int frames) {
+        if (accumulator.length < frames * 2) {
+            accumulator = new int[frames * 2];
+        }
+        Arrays.fill(accumulator, 0, frames * 2, 0);
+
+        for (SourceState state : sources) {
+            if (state.playing) {
+                mixSource(state, frames);
+            }
+        }
+
+        for (int i = 0; i < frames * 2; i++) {
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, accumulator[i]));
+        }
+        framesMixed += frames;
+    }
+
+    private void mixSource(SourceState state, int frames) {
+        int frame = 0;
+        while (frame < frames && state.playing) {
+            int buffer = state.queue[(state.queueStart + state.processed) % MAX_QUEUE];
+            short[] samples = bufferSamples.get(buffer - 1);
+            int channels = bufferChannels.get(buffer - 1);
+            int bufferFrames = samples.length / channels;
+
+            // Copy as much of this buffer as fits in the block
+            int count = Math.min(frames - frame, bufferFrames - state.cursor);
+            for (int i = 0; i < count; i++) {
+                int in = (state.cursor + i) * channels;
+                int left = samples[in];
+                int right = channels == 1 ? left : samples[in + 1];
+                accumulator[(frame + i) * 2] += (int) (left * state.gain);
+                accumulator[(frame + i) * 2 + 1] += (int) (right * state.gain);
+            }
+            frame += count;
+            state.cursor += count;
+
+            if (state.cursor >= bufferFrames) {
+                state.cursor = 0;
+                if (state.looping && state.queueLength == 1 && bufferFrames > 0) {
+                    continue;
+                }
+                state.processed++;
+                if (state.processed == state.queueLength) {
+                    // Ran out of buffers, a real device stops the source as well
+                    state.playing = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of frames mixed since the device was created
+     */
+    public long getFramesMixed() {
+        return framesMixed;
+    }
+
+    @Override
+    public void close() {
+        sources.clear();
+        bufferSamples.clear();
+        bufferChannels.clear();
+    }
+
+    private static final class SourceState {
+        private final int[] queue = new int[MAX_QUEUE]; // ring of buffer handles
+        private int queueStart, queueLength;
+        private int processed; // buffers at the start of the queue that are done playing
+        private int cursor; // frame in the buffer that is playing
+        private float gain = 1.0f, pitch = 1.0f;
+        private boolean looping, playing, paused;
+    }
+}
@@ -0,0 +1,138 @@
+package audio;
+
+import org.lwjgl.openal.AL;
+import org.lwjgl.openal.ALC;
+import org.lwjgl.openal.ALCCapabilities;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.openal.AL10.*;
+import static org.lwjgl.openal.ALC10.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Plays sound through the default OpenAL output device.
+ * <p>
+ * OpenAL works a lot like OpenGL: there is a device and a context, and the context has to be made current
+ * before any al* function can be called. Buffers hold sound data, sources play buffers.
+ */
+public class OpenALDevice implements AudioDevice {
+
+    private long device, context;
+
+    public OpenALDevice() {
+        // Open the default output device
+        device = alcOpenDevice((ByteBuffer) null);
+        if (device == NULL) {
+            throw new IllegalStateException("Failed to open the default OpenAL device");
+        }
+
+        ALCCapabilities deviceCaps = ALC.createCapabilities(device);
+        context = alcCreateContext(device, (IntBuffer) null);
+        if (context == NULL) {
+            throw new IllegalStateException("Failed to create an OpenAL context");
+        }
+
+        // Same idea as GL.createCapabilities() for OpenGL
+        alcMakeContextCurrent(context);
+        AL.createCapabilities(deviceCaps);
+    }
+
+    @Override
+    public int createBuffer() {
+        return alGenBuffers();
+    }
+
+    @Override
+    public void bufferData(int buffer, int channels, ShortBuffer pcm, int sampleRate) {
+        int format = channels == 1 ? AL_FORMAT_MONO16 : AL_FORMAT_STEREO16;
+        alBufferData(buffer, format, pcm, sampleRate);
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        alDeleteBuffers(buffer);
+    }
+
+    @Override
+    public int createSource() {
+        return alGenSources();
+    }
+
+    @Override
+    public void deleteSource(int source) {
+        alDeleteSources(source);
+    }
+
+    @Override
+    public void setBuffer(int source, int buffer) {
+        alSourcei(source, AL_BUFFER, buffer);
+    }
+
+    @Override
+    public void queueBuffer(int source, int buffer) {
+        alSourceQueueBuffers(source, buffer);
+    }
+
+    @Override
+    public int unqueueBuffer(int source) {
+        if (alGetSourcei(source, AL_BUFFERS_PROCESSED) == 0) {
+            return 0;
+        }
+        return alSourceUnqueueBuffers(source);
+    }
+
+    @Override
+    public int getProcessedBuffers(int source) {
+        return alGetSourcei(source, AL_BUFFERS_PROCESSED);
+    }
+
+    @Override
+    public int getQueuedBuffers(int source) {
+        return alGetSourcei(source, AL_BUFFERS_QUEUED);
+    }
+
+    @Override
+    public void setGain(int source, float gain) {
+        alSourcef(source, AL_GAIN, gain);
+    }
+
+    @Override
+    public void setPitch(int source, float pitch) {
+        alSourcef(source, AL_PITCH, pitch);
+    }
+
+    @Override
+    public void setLooping(int source, boolean looping) {
+        alSourcei(source, AL_LOOPING, looping ? AL_TRUE : AL_FALSE);
+    }
+
+    @Override
+    public void play(int source) {
+        alSourcePlay(source);
+    }
+
+    @Override
+    public void pause(int source) {
+        alSourcePause(source);
+    }
+
+    @Override
+    public void stop(int source) {
+        alSourceStop(source);
+    }
+
+    @Override
+    public boolean isPlaying(int source) {
+        return alGetSourcei(source, AL_SOURCE_STATE) == AL_PLAYING;
+    }
+
+    @Override
+    public void close() {
+        alcMakeContextCurrent(NULL);
+        alcDestroyContext(context);
+        alcCloseDevice(device);
+    }
+}
@@ -0,0 +1,41 @@
+package audio;
+
+/**
+ * A short sound effect, decoded once into a single buffer that every voice playing it shares.
+ */
+public class Sound {
+    private final String name;
+    private final int bufferID;
+    private final int channels, sampleRate, frames;
+
+    Sound(String name, int bufferID, int channels, int sampleRate, int frames) {
+        this.name = name;
+        this.bufferID = bufferID;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.frames = frames;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBufferID() {
+        return bufferID;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return length in seconds
+     */
+    public float getDuration() {
+        return (float) frames / sampleRate;
+    }
+}
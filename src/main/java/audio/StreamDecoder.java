@@ -0,0 +1,74 @@
+package audio;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Background thread that keeps the chunk rings of every {@link MusicStream} filled.
+ * <p>
+ * It decodes until every ring is full and then sleeps until a stream wakes it up again,
+ * which happens whenever the game loop has used up a chunk.
+ */
+public class StreamDecoder implements Runnable {
+
+    private final List<MusicStream> streams = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private boolean wakeRequested = false; // guarded by lock, so a wake between decoding and sleeping is not lost
+
+    public StreamDecoder() {
+        thread = new Thread(this, "Audio Stream Decoder");
+        thread.setDaemon(true); // do not keep the game alive when the window closes
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            boolean moreWork = false;
+            for (MusicStream stream : streams) {
+                moreWork |= stream.decodeAhead();
+            }
+
+            if (!moreWork) {
+                synchronized (lock) {
+                    while (!wakeRequested && running) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    wakeRequested = false;
+                }
+            }
+        }
+    }
+
+    public void add(MusicStream stream) {
+        streams.add(stream);
+        wake();
+    }
+
+    public void remove(MusicStream stream) {
+        streams.remove(stream);
+    }
+
+    public void wake() {
+        synchronized (lock) {
+            wakeRequested = true;
+            lock.notify();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        wake();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
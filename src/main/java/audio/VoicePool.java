@@ -0,0 +1,176 @@
+package audio;
+
+/**
+ * A fixed number of sources for sound effects, all created up front.
+ * <p>
+ * When every voice is busy, a new sound steals the voice with the lowest priority, the oldest one if there
+ * is a tie. A sound never steals from a voice with a higher priority, it just does not play.
+ * Everything is kept in flat arrays, so playing a sound allocates nothing.
+ * <p>
+ * Playing returns a handle instead of the source, which stops working once the voice is stolen or reused.
+ */
+public class VoicePool {
+    public static final long NO_VOICE = -1;
+
+    private final AudioDevice device;
+    private final int[] sources;
+    private final int[] buffers; // buffer attached to each voice, 0 if none
+    private final int[] priorities;
+    private final int[] generations; // goes up every time a voice is reused, so old handles can be detected
+    private final long[] startedAt; // play order, to find the oldest voice
+    private long playCounter = 0;
+    private int steals = 0;
+
+    public VoicePool(AudioDevice device, int voiceCount) {
+        this.device = device;
+        this.sources = new int[voiceCount];
+        this.buffers = new int[voiceCount];
+        this.priorities = new int[voiceCount];
+        this.generations = new int[voiceCount];
+        this.startedAt = new long[voiceCount];
+
+        for (int i = 0; i < voiceCount; i++) {
+            sources[i] = device.createSource();
+        }
+    }
+
+    /**
+     * Plays a sound on a free voice, or steals one if none is free
+     *
+     * @param sound    the sound to play
+     * @param priority higher priorities steal from lower ones
+     * @param gain     volume, 1 is unchanged
+     * @param pitch    playback speed, 1 is unchanged
+     * @param looping  keep playing until stopped
+     * @return a handle to the voice, or {@link #NO_VOICE} if every voice is busy with something more important
+     */
+    public long play(Sound sound, int priority, float gain, float pitch, boolean looping) {
+        int voice = findVoice(priority);
+        if (voice == -1) {
+            return NO_VOICE;
+        }
+
+        int source = sources[voice];
+        device.stop(source);
+        device.setBuffer(source, sound.getBufferID());
+        buffers[voice] = sound.getBufferID();
+        device.setGain(source, gain);
+        device.setPitch(source, pitch);
+        device.setLooping(source, looping);
+        device.play(source);
+
+        priorities[voice] = priority;
+        generations[voice]++;
+        startedAt[voice] = playCounter++;
+
+        return handle(voice);
+    }
+
+    private int findVoice(int priority) {
+        int candidate = -1;
+        for (int i = 0; i < sources.length; i++) {
+            if (!device.isPlaying(sources[i])) {
+                return i;
+            }
+
+            // Lowest priority first, then the oldest
+            if (priorities[i] <= priority && (candidate == -1
+                    || priorities[i] < priorities[candidate]
+                    || (priorities[i] == priorities[candidate] && startedAt[i] < startedAt[candidate]))) {
+                candidate = i;
+            }
+        }
+
+        if (candidate != -1) {
+            steals++;
+        }
+        return candidate;
+    }
+
+    private long handle(int voice) {
+        return ((long) generations[voice] << 32) | voice;
+    }
+
+    /**
+     * @return the voice of the handle, or -1 if the handle no longer belongs to it
+     */
+    private int voice(long handle) {
+        if (handle == NO_VOICE) {
+            return -1;
+        }
+        int voice = (int) handle;
+        if (voice < 0 || voice >= sources.length || generations[voice] != (int) (handle >>> 32)) {
+            return -1;
+        }
+        return voice;
+    }
+
+    public boolean isPlaying(long handle) {
+        int voice = voice(handle);
+        return voice != -1 && device.isPlaying(sources[voice]);
+    }
+
+    public void stop(long handle) {
+        int voice = voice(handle);
+        if (voice != -1) {
+            device.stop(sources[voice]);
+        }
+    }
+
+    public void setGain(long handle, float gain) {
+        int voice = voice(handle);
+        if (voice != -1) {
+            device.setGain(sources[voice], gain);
+        }
+    }
+
+    /**
+     * Stops every voice playing the sound and detaches its buffer, so the buffer can be deleted
+     */
+    public void release(Sound sound) {
+        for (int i = 0; i < sources.length; i++) {
+            if (buffers[i] == sound.getBufferID()) {
+                device.stop(sources[i]);
+                device.setBuffer(sources[i], 0);
+                buffers[i] = 0;
+            }
+        }
+    }
+
+    public void stopAll() {
+        for (int source : sources) {
+            device.stop(source);
+        }
+    }
+
+    /**
+     * @return number of voices that are playing right now
+     */
+    public int getActiveVoices() {
+        int active = 0;
+        for (int source : sources) {
+            if (device.isPlaying(source)) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    public int getVoiceCount() {
+        return sources.length;
+    }
+
+    /**
+     * @return how many times a playing voice was stolen for another sound
+     */
+    public int getSteals() {
+        return steals;
+    }
+
+    public void delete() {
+        for (int source : sources) {
+            device.stop(source);
+            device.deleteSource(source);
+        }
+    }
+}
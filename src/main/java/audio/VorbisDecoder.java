@@ -0,0 +1,82 @@
+package audio;
+
+import org.lwjgl.stb.STBVorbisInfo;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.stb.STBVorbis.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Decodes Ogg Vorbis files with stb_vorbis. The file is read from disk while decoding,
+ * so even long music tracks only take a few kilobytes of memory.
+ */
+public class VorbisDecoder implements AudioDecoder {
+
+    private final String filePath;
+    private long handle;
+    private int channels, sampleRate, lengthInFrames;
+
+    /**
+     * Handles opening the sound file
+     *
+     * @param filePath string path to an .ogg file
+     */
+    public VorbisDecoder(String filePath) {
+        this.filePath = filePath;
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer error = stack.mallocInt(1);
+            handle = stb_vorbis_open_filename(filePath, error, null);
+            if (handle == NULL) {
+                throw new IllegalStateException("Could not open vorbis file: " + filePath + " (error " + error.get(0) + ")");
+            }
+
+            STBVorbisInfo info = STBVorbisInfo.malloc(stack);
+            stb_vorbis_get_info(handle, info);
+            channels = info.channels();
+            sampleRate = info.sample_rate();
+        }
+
+        lengthInFrames = stb_vorbis_stream_length_in_samples(handle);
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getLengthInFrames() {
+        return lengthInFrames;
+    }
+
+    @Override
+    public int read(ShortBuffer pcm) {
+        return stb_vorbis_get_samples_short_interleaved(handle, channels, pcm);
+    }
+
+    @Override
+    public void rewind() {
+        stb_vorbis_seek_start(handle);
+    }
+
+    @Override
+    public void close() {
+        if (handle != NULL) {
+            stb_vorbis_close(handle);
+            handle = NULL;
+        }
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+}
@@ -0,0 +1,95 @@
+package cooker;
+
+import renderer.mesh.CookedAsset;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Offline tool that turns source meshes and animations into cooked files the game can map and upload directly.
+ * <p>
+ * Usage: {@code AssetCooker <output directory> <source files...>}
+ * <p>
+ * Every asset is imported with Assimp, optimized with the {@link MeshOptimizer} and written with the {@link CookedWriter}.
+ * Afterwards the cooked file is loaded back, and the cook time, cooked size and load time are reported.
+ */
+public class AssetCooker {
+    public static final String COOKED_EXTENSION = ".w2dc";
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: AssetCooker <output directory> <source files...>");
+            System.exit(1);
+        }
+        if (args.length == 1) {
+            System.out.println("Nothing to cook");
+            return;
+        }
+
+        Path outputDirectory = Paths.get(args[0]);
+        int failures = 0;
+
+        System.out.printf("%-32s %10s %10s %12s %12s %13s %11s %7s%n",
+                "asset", "cook ms", "load ms", "source B", "cooked B", "verts", "acmr", "index");
+        for (int i = 1; i < args.length; i++) {
+            try {
+                cook(Paths.get(args[i]), outputDirectory);
+            } catch (IOException e) {
+                System.err.println("ERROR: " + args[i] + "\n\t" + e.getMessage());
+                failures++;
+            } catch (RuntimeException e) {
+                // A broken asset can trip up Assimp or the optimizer, that should not stop the other assets from cooking
+                System.err.println("ERROR: " + args[i] + "\n\t" + e);
+                failures++;
+            }
+        }
+
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Cooks a single asset and prints its report line
+     *
+     * @return path of the cooked file
+     */
+    public static Path cook(Path source, Path outputDirectory) throws IOException {
+        String name = source.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        Path target = outputDirectory.resolve((dot > 0 ? name.substring(0, dot) : name) + COOKED_EXTENSION);
+        Files.createDirectories(outputDirectory);
+
+        long cookStart = System.nanoTime();
+        ImportedAsset imported = AssimpImporter.load(source.toString());
+
+        ImportedAsset optimized = new ImportedAsset();
+        float missesBefore = 0, missesAfter = 0;
+        for (MeshData mesh : imported.meshes) {
+            MeshData result = MeshOptimizer.optimize(mesh);
+            optimized.meshes.add(result);
+            missesBefore += MeshOptimizer.averageCacheMissRatio(mesh.indices, mesh.getVertexCount()) * mesh.indices.length;
+            missesAfter += MeshOptimizer.averageCacheMissRatio(result.indices, result.getVertexCount()) * result.indices.length;
+        }
+        optimized.animations.addAll(imported.animations);
+
+        int cookedSize = CookedWriter.write(optimized, target);
+        double cookMillis = (System.nanoTime() - cookStart) / 1e6;
+
+        long loadStart = System.nanoTime();
+        CookedAsset cooked = CookedAsset.load(target.toString());
+        double loadMillis = (System.nanoTime() - loadStart) / 1e6;
+
+        // Average cache miss ratio over all submeshes, weighted by their size
+        int indexCount = Math.max(imported.getIndexCount(), 1);
+        System.out.printf("%-32s %10.2f %10.3f %12d %12d %13s %11s %7s%n",
+                name, cookMillis, loadMillis, Files.size(source), cookedSize,
+                imported.getVertexCount() + ">" + cooked.getVertexCount(),
+                String.format("%.2f>%.2f", missesBefore / indexCount, missesAfter / indexCount),
+                (cooked.getIndexSize() * 8) + "-bit");
+
+        return target;
+    }
+}
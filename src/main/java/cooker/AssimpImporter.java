@@ -0,0 +1,155 @@
+package cooker;
+
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.assimp.*;
+import renderer.mesh.CookedAnimation;
+import renderer.mesh.CookedFormat;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.assimp.Assimp.*;
+
+/**
+ * Reads meshes and animations from any format Assimp understands (.obj, .fbx, .gltf, ...).
+ * Only the cooker uses Assimp, the game itself only ever loads cooked files.
+ */
+public final class AssimpImporter {
+
+    private AssimpImporter() {
+    }
+
+    /**
+     * @param filePath string path to the source file
+     * @return the meshes and animations in the file, not optimized yet
+     */
+    public static ImportedAsset load(String filePath) throws IOException {
+        // Only triangulate, deduplication and reordering is done by the MeshOptimizer
+        AIScene scene = aiImportFile(filePath, aiProcess_Triangulate | aiProcess_SortByPType);
+        if (scene == null) {
+            throw new IOException("Could not import " + filePath + ": " + aiGetErrorString());
+        }
+
+        try {
+            ImportedAsset asset = new ImportedAsset();
+
+            PointerBuffer meshes = scene.mMeshes();
+            for (int i = 0; i < scene.mNumMeshes(); i++) {
+                AIMesh mesh = AIMesh.create(meshes.get(i));
+                // Points and lines are sorted into their own meshes, there is nothing to draw in those
+                if ((mesh.mPrimitiveTypes() & aiPrimitiveType_TRIANGLE) != 0) {
+                    asset.meshes.add(readMesh(mesh));
+                }
+            }
+
+            PointerBuffer animations = scene.mAnimations();
+            for (int i = 0; i < scene.mNumAnimations(); i++) {
+                asset.animations.add(readAnimation(AIAnimation.create(animations.get(i))));
+            }
+
+            return asset;
+        } finally {
+            aiReleaseImport(scene);
+        }
+    }
+
+    private static MeshData readMesh(AIMesh mesh) {
+        int vertexCount = mesh.mNumVertices();
+        AIVector3D.Buffer positions = mesh.mVertices();
+        AIColor4D.Buffer colors = mesh.mColors(0); // null if the mesh has no vertex colors
+        AIVector3D.Buffer uvs = mesh.mTextureCoords(0); // null if the mesh has no texture coordinates
+
+        float[] vertices = new float[vertexCount * CookedFormat.FLOATS_PER_VERTEX];
+        for (int v = 0; v < vertexCount; v++) {
+            int offset = v * CookedFormat.FLOATS_PER_VERTEX;
+
+            AIVector3D position = positions.get(v);
+            vertices[offset] = position.x();
+            vertices[offset + 1] = position.y();
+            vertices[offset + 2] = position.z();
+
+            if (colors != null) {
+                AIColor4D color = colors.get(v);
+                vertices[offset + 3] = color.r();
+                vertices[offset + 4] = color.g();
+                vertices[offset + 5] = color.b();
+                vertices[offset + 6] = color.a();
+            } else {
+                vertices[offset + 3] = 1.0f;
+                vertices[offset + 4] = 1.0f;
+                vertices[offset + 5] = 1.0f;
+                vertices[offset + 6] = 1.0f;
+            }
+
+            if (uvs != null) {
+                AIVector3D uv = uvs.get(v);
+                vertices[offset + 7] = uv.x();
+                vertices[offset + 8] = uv.y();
+            }
+        }
+
+        AIFace.Buffer faces = mesh.mFaces();
+        int[] indices = new int[mesh.mNumFaces() * 3];
+        int count = 0;
+        for (int f = 0; f < mesh.mNumFaces(); f++) {
+            IntBuffer face = faces.get(f).mIndices();
+            if (face.remaining() == 3) {
+                indices[count++] = face.get(0);
+                indices[count++] = face.get(1);
+                indices[count++] = face.get(2);
+            }
+        }
+
+        return new MeshData(vertices, Arrays.copyOf(indices, count), mesh.mMaterialIndex());
+    }
+
+    private static CookedAnimation readAnimation(AIAnimation animation) {
+        PointerBuffer channelPointers = animation.mChannels();
+        CookedAnimation.Channel[] channels = new CookedAnimation.Channel[animation.mNumChannels()];
+
+        for (int i = 0; i < channels.length; i++) {
+            AINodeAnim node = AINodeAnim.create(channelPointers.get(i));
+
+            AIVectorKey.Buffer positionKeys = node.mPositionKeys();
+            float[] positions = new float[node.mNumPositionKeys() * CookedFormat.POSITION_KEY_SIZE];
+            for (int k = 0; k < node.mNumPositionKeys(); k++) {
+                AIVectorKey key = positionKeys.get(k);
+                int offset = k * CookedFormat.POSITION_KEY_SIZE;
+                positions[offset] = (float) key.mTime();
+                positions[offset + 1] = key.mValue().x();
+                positions[offset + 2] = key.mValue().y();
+                positions[offset + 3] = key.mValue().z();
+            }
+
+            AIQuatKey.Buffer rotationKeys = node.mRotationKeys();
+            float[] rotations = new float[node.mNumRotationKeys() * CookedFormat.ROTATION_KEY_SIZE];
+            for (int k = 0; k < node.mNumRotationKeys(); k++) {
+                AIQuatKey key = rotationKeys.get(k);
+                int offset = k * CookedFormat.ROTATION_KEY_SIZE;
+                rotations[offset] = (float) key.mTime();
+                rotations[offset + 1] = key.mValue().x();
+                rotations[offset + 2] = key.mValue().y();
+                rotations[offset + 3] = key.mValue().z();
+                rotations[offset + 4] = key.mValue().w();
+            }
+
+            AIVectorKey.Buffer scalingKeys = node.mScalingKeys();
+            float[] scalings = new float[node.mNumScalingKeys() * CookedFormat.SCALING_KEY_SIZE];
+            for (int k = 0; k < node.mNumScalingKeys(); k++) {
+                AIVectorKey key = scalingKeys.get(k);
+                int offset = k * CookedFormat.SCALING_KEY_SIZE;
+                scalings[offset] = (float) key.mTime();
+                scalings[offset + 1] = key.mValue().x();
+                scalings[offset + 2] = key.mValue().y();
+                scalings[offset + 3] = key.mValue().z();
+            }
+
+            channels[i] = new CookedAnimation.Channel(node.mNodeName().dataString(), positions, rotations, scalings);
+        }
+
+        // Assimp uses 0 when the file does not say
+        float ticksPerSecond = animation.mTicksPerSecond() != 0 ? (float) animation.mTicksPerSecond() : 25.0f;
+        return new CookedAnimation(animation.mName().dataString(), (float) animation.mDuration(), ticksPerSecond, channels);
+    }
+}
@@ -0,0 +1,151 @@
+package cooker;
+
+import renderer.mesh.CookedAnimation;
+import renderer.mesh.CookedFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes an {@link ImportedAsset} in the cooked format, see {@link CookedFormat}.
+ * <p>
+ * Indices are written as 16 bits when every submesh has at most 65536 vertices, which halves the index data.
+ */
+public final class CookedWriter {
+    public static final int MAX_SHORT_INDEX_VERTICES = 0x10000;
+
+    private CookedWriter() {
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    public static int write(ImportedAsset asset, Path path) throws IOException {
+        ByteBuffer buffer = encode(asset);
+        Files.write(path, buffer.array());
+        return buffer.limit();
+    }
+
+    /**
+     * @return the cooked file in a heap buffer, little endian
+     */
+    public static ByteBuffer encode(ImportedAsset asset) {
+        int indexSize = 2;
+        for (MeshData mesh : asset.meshes) {
+            if (mesh.getVertexCount() > MAX_SHORT_INDEX_VERTICES) {
+                indexSize = 4;
+            }
+        }
+
+        int vertexCount = asset.getVertexCount();
+        int indexCount = asset.getIndexCount();
+
+        // Work out where everything goes
+        int vertexOffset = CookedFormat.align4(CookedFormat.HEADER_SIZE_BYTES
+                + asset.meshes.size() * CookedFormat.SUBMESH_SIZE_BYTES);
+        int indexOffset = CookedFormat.align4(vertexOffset + (long) vertexCount * CookedFormat.VERTEX_SIZE_BYTES);
+        int animationOffset = CookedFormat.align4(indexOffset + (long) indexCount * indexSize);
+        int size = animationOffset;
+        for (CookedAnimation animation : asset.animations) {
+            size += animationSize(animation);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        // Header
+        buffer.putInt(CookedFormat.MAGIC);
+        buffer.putInt(CookedFormat.VERSION);
+        buffer.putInt(indexSize);
+        buffer.putInt(asset.meshes.size());
+        buffer.putInt(asset.animations.size());
+        buffer.putInt(vertexCount);
+        buffer.putInt(indexCount);
+        buffer.putLong(vertexOffset);
+        buffer.putLong(indexOffset);
+        buffer.putLong(animationOffset);
+
+        // Submesh table
+        int baseVertex = 0, firstIndex = 0;
+        for (MeshData mesh : asset.meshes) {
+            buffer.putInt(baseVertex);
+            buffer.putInt(mesh.getVertexCount());
+            buffer.putInt(firstIndex);
+            buffer.putInt(mesh.indices.length);
+            buffer.putInt(mesh.materialIndex);
+            baseVertex += mesh.getVertexCount();
+            firstIndex += mesh.indices.length;
+        }
+
+        buffer.position(vertexOffset);
+        for (MeshData mesh : asset.meshes) {
+            for (float value : mesh.vertices) {
+                buffer.putFloat(value);
+            }
+        }
+
+        buffer.position(indexOffset);
+        for (MeshData mesh : asset.meshes) {
+            for (int index : mesh.indices) {
+                if (indexSize == 2) {
+                    buffer.putShort((short) index);
+                } else {
+                    buffer.putInt(index);
+                }
+            }
+        }
+
+        buffer.position(animationOffset);
+        for (CookedAnimation animation : asset.animations) {
+            writeAnimation(buffer, animation);
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int animationSize(CookedAnimation animation) {
+        int size = stringSize(animation.getName()) + 2 * Float.BYTES + Integer.BYTES;
+        for (CookedAnimation.Channel channel : animation.getChannels()) {
+            size += stringSize(channel.nodeName) + 3 * Integer.BYTES;
+            size += (channel.positionKeys.length + channel.rotationKeys.length + channel.scalingKeys.length) * Float.BYTES;
+        }
+        return size;
+    }
+
+    private static void writeAnimation(ByteBuffer buffer, CookedAnimation animation) {
+        writeString(buffer, animation.getName());
+        buffer.putFloat(animation.getDuration());
+        buffer.putFloat(animation.getTicksPerSecond());
+        buffer.putInt(animation.getChannels().length);
+
+        for (CookedAnimation.Channel channel : animation.getChannels()) {
+            writeString(buffer, channel.nodeName);
+            buffer.putInt(channel.positionKeys.length / CookedFormat.POSITION_KEY_SIZE);
+            buffer.putInt(channel.rotationKeys.length / CookedFormat.ROTATION_KEY_SIZE);
+            buffer.putInt(channel.scalingKeys.length / CookedFormat.SCALING_KEY_SIZE);
+            for (float value : channel.positionKeys) {
+                buffer.putFloat(value);
+            }
+            for (float value : channel.rotationKeys) {
+                buffer.putFloat(value);
+            }
+            for (float value : channel.scalingKeys) {
+                buffer.putFloat(value);
+            }
+        }
+    }
+
+    private static int stringSize(String string) {
+        return Short.BYTES + string.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeString(ByteBuffer buffer, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+}
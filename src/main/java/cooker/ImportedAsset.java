@@ -0,0 +1,30 @@
+package cooker;
+
+import renderer.mesh.CookedAnimation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything the cooker took out of a source file, one {@link MeshData} per submesh
+ */
+public class ImportedAsset {
+    public final List<MeshData> meshes = new ArrayList<>();
+    public final List<CookedAnimation> animations = new ArrayList<>();
+
+    public int getVertexCount() {
+        int count = 0;
+        for (MeshData mesh : meshes) {
+            count += mesh.getVertexCount();
+        }
+        return count;
+    }
+
+    public int getIndexCount() {
+        int count = 0;
+        for (MeshData mesh : meshes) {
+            count += mesh.indices.length;
+        }
+        return count;
+    }
+}
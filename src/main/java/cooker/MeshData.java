@@ -0,0 +1,23 @@
+package cooker;
+
+import renderer.mesh.CookedFormat;
+
+/**
+ * A triangle mesh while it is being cooked: interleaved vertices in the cooked layout
+ * ({@link CookedFormat#FLOATS_PER_VERTEX} floats each) and three indices per triangle.
+ */
+public class MeshData {
+    public final float[] vertices;
+    public final int[] indices;
+    public final int materialIndex;
+
+    public MeshData(float[] vertices, int[] indices, int materialIndex) {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.materialIndex = materialIndex;
+    }
+
+    public int getVertexCount() {
+        return vertices.length / CookedFormat.FLOATS_PER_VERTEX;
+    }
+}
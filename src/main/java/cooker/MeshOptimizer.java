@@ -0,0 +1,316 @@
+package cooker;
+
+import java.util.Arrays;
+
+import static renderer.mesh.CookedFormat.FLOATS_PER_VERTEX;
+
+/**
+ * Offline optimizations that make a mesh smaller and faster to draw:
+ * <ul>
+ *     <li>
+ *         <b>Vertex deduplication-</b> vertices with exactly the same attributes are merged into one
+ *     </li>
+ *     <li>
+ *         <b>Vertex cache optimization-</b> triangles are reordered so that vertices the GPU has just transformed
+ *         are reused as often as possible (Tom Forsyth's linear-speed vertex cache optimisation)
+ *     </li>
+ *     <li>
+ *         <b>Vertex fetch optimization-</b> vertices are renumbered in the order the triangles first use them,
+ *         so the GPU reads the vertex buffer front to back
+ *     </li>
+ * </ul>
+ * Whether the indices fit in 16 bits is up to the {@link CookedWriter}, after deduplication most meshes do.
+ */
+public final class MeshOptimizer {
+    public static final int CACHE_SIZE = 32; // vertices in the simulated post-transform cache
+
+    // Scoring constants from Forsyth's paper
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    private MeshOptimizer() {
+    }
+
+    /**
+     * Runs every optimization in order
+     */
+    public static MeshData optimize(MeshData mesh) {
+        MeshData deduplicated = deduplicate(mesh);
+        int[] indices = optimizeVertexCache(deduplicated.indices, deduplicated.getVertexCount());
+        return optimizeVertexFetch(new MeshData(deduplicated.vertices, indices, mesh.materialIndex));
+    }
+
+    /**
+     * Merges vertices that have exactly the same attributes, bit for bit
+     */
+    public static MeshData deduplicate(MeshData mesh) {
+        int vertexCount = mesh.getVertexCount();
+        float[] in = mesh.vertices;
+
+        // Open addressing hash table from vertex to its new index, at most half full
+        int tableSize = Integer.highestOneBit(Math.max(vertexCount, 1) * 2) * 2;
+        int[] table = new int[tableSize];
+        Arrays.fill(table, -1);
+
+        float[] out = new float[in.length];
+        int[] remap = new int[vertexCount];
+        int unique = 0;
+
+        for (int v = 0; v < vertexCount; v++) {
+            int slot = hashVertex(in, v) & (tableSize - 1);
+            while (table[slot] != -1 && !sameVertex(in, v, out, table[slot])) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+
+            if (table[slot] == -1) {
+                System.arraycopy(in, v * FLOATS_PER_VERTEX, out, unique * FLOATS_PER_VERTEX, FLOATS_PER_VERTEX);
+                table[slot] = unique++;
+            }
+            remap[v] = table[slot];
+        }
+
+        int[] indices = new int[mesh.indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = remap[mesh.indices[i]];
+        }
+
+        return new MeshData(Arrays.copyOf(out, unique * FLOATS_PER_VERTEX), indices, mesh.materialIndex);
+    }
+
+    private static int hashVertex(float[] vertices, int vertex) {
+        int hash = 17;
+        for (int i = 0; i < FLOATS_PER_VERTEX; i++) {
+            hash = hash * 31 + Float.floatToIntBits(vertices[vertex * FLOATS_PER_VERTEX + i]);
+        }
+        // Spread the bits, the table only looks at the low ones
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean sameVertex(float[] a, int vertexA, float[] b, int vertexB) {
+        for (int i = 0; i < FLOATS_PER_VERTEX; i++) {
+            if (Float.floatToIntBits(a[vertexA * FLOATS_PER_VERTEX + i])
+                    != Float.floatToIntBits(b[vertexB * FLOATS_PER_VERTEX + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reorders the triangles for the post-transform vertex cache.
+     * <p>
+     * Every vertex gets a score for being in the cache (higher the more recently it was used) and for
+     * having few triangles left (so stragglers get finished instead of left behind). The triangle with the
+     * highest total score is emitted next, and only the triangles around the cached vertices have to be rescored.
+     *
+     * @param indices     three indices per triangle
+     * @param vertexCount number of vertices the indices point at
+     * @return the same triangles in a new order
+     */
+    public static int[] optimizeVertexCache(int[] indices, int vertexCount) {
+        int triangleCount = indices.length / 3;
+        if (triangleCount == 0) {
+            return indices.clone();
+        }
+
+        // Triangles using each vertex, as one flat list with offsets
+        int[] remaining = new int[vertexCount];
+        for (int index : indices) {
+            remaining[index]++;
+        }
+        int[] adjacencyOffsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            adjacencyOffsets[v + 1] = adjacencyOffsets[v] + remaining[v];
+        }
+        int[] adjacency = new int[indices.length];
+        int[] fill = Arrays.copyOf(adjacencyOffsets, vertexCount);
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                adjacency[fill[v]++] = t;
+            }
+        }
+
+        int[] cachePosition = new int[vertexCount];
+        Arrays.fill(cachePosition, -1);
+        float[] vertexScore = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            vertexScore[v] = vertexScore(-1, remaining[v]);
+        }
+
+        boolean[] emitted = new boolean[triangleCount];
+        float[] triangleScore = new float[triangleCount];
+        for (int t = 0; t < triangleCount; t++) {
+            triangleScore[t] = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]] + vertexScore[indices[t * 3 + 2]];
+        }
+
+        // Cache plus room for the three vertices of the triangle being added
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] newCache = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+
+        int[] result = new int[indices.length];
+        int bestTriangle = bestTriangle(triangleScore, emitted, 0);
+        int scanStart = 0; // every triangle before this is emitted, used when the cache has no candidates
+
+        for (int out = 0; out < triangleCount; out++) {
+            if (bestTriangle == -1) {
+                while (emitted[scanStart]) {
+                    scanStart++;
+                }
+                bestTriangle = bestTriangle(triangleScore, emitted, scanStart);
+            }
+
+            int t = bestTriangle;
+            emitted[t] = true;
+
+            // Emit the triangle and put its vertices at the front of the cache
+            int newCount = 0;
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                result[out * 3 + k] = v;
+                if (!contains(newCache, newCount, v)) {
+                    newCache[newCount++] = v; // degenerate triangles use a vertex twice
+                }
+                remaining[v]--;
+                removeTriangle(adjacency, adjacencyOffsets[v], adjacencyOffsets[v] + remaining[v] + 1, t);
+            }
+            int emittedCount = newCount;
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                if (!contains(newCache, emittedCount, v)) {
+                    newCache[newCount++] = v;
+                }
+            }
+
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+            cacheCount = newCount;
+
+            // Rescore everything in the cache, and everything that just fell out of it
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                cachePosition[v] = i < CACHE_SIZE ? i : -1;
+                vertexScore[v] = vertexScore(cachePosition[v], remaining[v]);
+            }
+
+            bestTriangle = -1;
+            float bestScore = -1;
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                for (int a = adjacencyOffsets[v]; a < adjacencyOffsets[v] + remaining[v]; a++) {
+                    int candidate = adjacency[a];
+                    float score = vertexScore[indices[candidate * 3]] + vertexScore[indices[candidate * 3 + 1]]
+                            + vertexScore[indices[candidate * 3 + 2]];
+                    triangleScore[candidate] = score;
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestTriangle = candidate;
+                    }
+                }
+            }
+
+            cacheCount = Math.min(cacheCount, CACHE_SIZE);
+        }
+
+        return result;
+    }
+
+    private static float vertexScore(int cachePosition, int remainingTriangles) {
+        if (remainingTriangles == 0) {
+            return -1.0f; // nothing left to draw with this vertex
+        }
+
+        float score = 0.0f;
+        if (cachePosition >= 0) {
+            if (cachePosition < 3) {
+                // Used by the last triangle, a fixed score so it does not win just for being there
+                score = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaler = 1.0f / (CACHE_SIZE - 3);
+                score = (float) Math.pow(1.0f - (cachePosition - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+
+        score += VALENCE_BOOST_SCALE * (float) Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+        return score;
+    }
+
+    private static boolean contains(int[] array, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void removeTriangle(int[] adjacency, int start, int end, int triangle) {
+        for (int i = start; i < end; i++) {
+            if (adjacency[i] == triangle) {
+                adjacency[i] = adjacency[end - 1];
+                return;
+            }
+        }
+    }
+
+    private static int bestTriangle(float[] triangleScore, boolean[] emitted, int start) {
+        int best = -1;
+        for (int t = start; t < triangleScore.length; t++) {
+            if (!emitted[t] && (best == -1 || triangleScore[t] > triangleScore[best])) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Renumbers the vertices in the order the indices first use them, unused vertices are dropped
+     */
+    public static MeshData optimizeVertexFetch(MeshData mesh) {
+        int[] remap = new int[mesh.getVertexCount()];
+        Arrays.fill(remap, -1);
+
+        float[] out = new float[mesh.vertices.length];
+        int[] indices = new int[mesh.indices.length];
+        int next = 0;
+
+        for (int i = 0; i < indices.length; i++) {
+            int v = mesh.indices[i];
+            if (remap[v] == -1) {
+                System.arraycopy(mesh.vertices, v * FLOATS_PER_VERTEX, out, next * FLOATS_PER_VERTEX, FLOATS_PER_VERTEX);
+                remap[v] = next++;
+            }
+            indices[i] = remap[v];
+        }
+
+        return new MeshData(Arrays.copyOf(out, next * FLOATS_PER_VERTEX), indices, mesh.materialIndex);
+    }
+
+    /**
+     * Simulates a FIFO post-transform cache.
+     *
+     * @return average cache miss ratio, the number of vertices transformed per triangle. 3 is the worst, 0.5 is about the best
+     */
+    public static float averageCacheMissRatio(int[] indices, int vertexCount) {
+        if (indices.length == 0) {
+            return 0;
+        }
+
+        int[] timestamps = new int[vertexCount]; // when the vertex entered the cache
+        Arrays.fill(timestamps, Integer.MIN_VALUE / 2);
+        int misses = 0;
+
+        for (int index : indices) {
+            if (misses - timestamps[index] >= CACHE_SIZE) {
+                timestamps[index] = misses;
+                misses++;
+            }
+        }
+
+        return (float) misses / (indices.length / 3);
+    }
+}
@@ -1,14 +1,27 @@
 package gefe;
 
+import gefe.editor.EditCommand;
+import gefe.editor.EditHistory;
+import gefe.editor.LevelJournal;
+import gefe.editor.TileMap;
+import gefe.input.KeyListener;
+import gefe.replay.SnapshotBuffer;
 import gefe.visual.Camera;
 import gefe.visual.Scene;
+import gefe.visual.Viewport;
+import gefe.visual.Window;
 import org.joml.Vector2f;
 import org.lwjgl.BufferUtils;
 import renderer.Shader;
 
+import java.io.IOException;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
+import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.glBindVertexArray;
 import static org.lwjgl.opengl.GL30.glGenVertexArrays;
@@ -34,6 +47,12 @@ public class LevelEditorScene extends Scene {
 
     private int vaoID, vboID, eboID;
 
+    // Editing
+    private static final Path LEVEL_PATH = Paths.get("assets/levels/editor.level");
+    private LevelJournal journal;
+    private EditHistory history;
+    private boolean undoHeld, redoHeld, saveHeld; // so holding a shortcut down only triggers it once
+
     public LevelEditorScene() {
 
     }
@@ -42,6 +61,21 @@ public class LevelEditorScene extends Scene {
     public void init() {
         this.camera = new Camera(new Vector2f());
 
+        journal = new LevelJournal(LEVEL_PATH);
+        TileMap map = TileMap.empty();
+        try {
+            Files.createDirectories(LEVEL_PATH.getParent());
+            map = journal.load();
+        } catch (IOException e) {
+            e.printStackTrace();
+            assert false : "Error: Could not load level: " + LEVEL_PATH;
+        }
+        history = new EditHistory(map);
+
+        // Minimap in the top right corner, looking at four times as much of the level
+        Camera minimapCamera = new Camera(new Vector2f(), 32.0f * 40.0f * 4.0f, 32.0f * 21.0f * 4.0f);
+        Window.get().addViewport(new Viewport(this, minimapCamera, 0.75f, 0.75f, 0.25f, 0.25f));
+
         defaultShader = new Shader("assets/shaders/default.glsl");
         defaultShader.compile();
         defaultShader.link();
@@ -83,9 +117,100 @@ public class LevelEditorScene extends Scene {
 
     }
 
+    /**
+     * Applies an edit to the level, so it can be undone
+     */
+    public void edit(EditCommand command) {
+        if (history.execute(command)) {
+            markChanged();
+        }
+    }
+
+    /**
+     * Saves the changes since the last save
+     */
+    public void save() {
+        try {
+            journal.save(history.getCurrent());
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("ERROR: Could not save level: " + LEVEL_PATH);
+        }
+    }
+
+    /**
+     * Ctrl+Z undo, Ctrl+Y or Ctrl+Shift+Z redo, Ctrl+S save
+     */
+    private void handleShortcuts() {
+        boolean ctrl = KeyListener.isKeyPressed(GLFW_KEY_LEFT_CONTROL) || KeyListener.isKeyPressed(GLFW_KEY_RIGHT_CONTROL);
+        boolean shift = KeyListener.isKeyPressed(GLFW_KEY_LEFT_SHIFT) || KeyListener.isKeyPressed(GLFW_KEY_RIGHT_SHIFT);
+
+        boolean undo = ctrl && !shift && KeyListener.isKeyPressed(GLFW_KEY_Z);
+        boolean redo = ctrl && (KeyListener.isKeyPressed(GLFW_KEY_Y) || (shift && KeyListener.isKeyPressed(GLFW_KEY_Z)));
+        boolean save = ctrl && KeyListener.isKeyPressed(GLFW_KEY_S);
+
+        if (undo && !undoHeld && history.undo()) {
+            markChanged();
+        }
+        if (redo && !redoHeld && history.redo()) {
+            markChanged();
+        }
+        if (save && !saveHeld) {
+            save();
+        }
+
+        undoHeld = undo;
+        redoHeld = redo;
+        saveHeld = save;
+    }
+
+    /**
+     * Closes the journal, this waits for a compaction that is still running so the level file is never cut off
+     */
+    @Override
+    public void destroy() {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("ERROR: Could not close level: " + LEVEL_PATH);
+        }
+    }
+
+    /**
+     * Also keeps the version of the map that is being edited, so rewinding the editor rewinds the level
+     */
+    @Override
+    public void save(SnapshotBuffer out) {
+        super.save(out);
+        out.putReference(history.getCurrent()); // versions never change, so keeping it by reference is enough
+    }
+
+    @Override
+    public void load(SnapshotBuffer in) {
+        super.load(in);
+        history.restore(in.getReference());
+    }
+
+    public EditHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * The editor only changes when the user does something, so idle viewports are not redrawn
+     */
+    @Override
+    public boolean isContinuous() {
+        return false;
+    }
+
     @Override
     public void update(double deltaTime) {
+        handleShortcuts();
+    }
 
+    @Override
+    public void render(Camera camera) {
         // Start using Shader
         defaultShader.use();
         defaultShader.uploadMatrix4f("uProjectionMatrix", camera.getProjectionMatrix());
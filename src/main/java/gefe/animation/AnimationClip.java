@@ -0,0 +1,156 @@
+package gefe.animation;
+
+import java.util.Arrays;
+
+/**
+ * A sprite animation, precomputed into flat tables so that finding the frame for a point in time allocates nothing.
+ * <p>
+ * <ul>
+ *     <li>
+ *         <b>Frames-</b> the sprite index (see {@link SpriteSheet}) of every frame
+ *     </li>
+ *     <li>
+ *         <b>Frame ends-</b> prefix sums of the frame durations, the time at which every frame ends.
+ *         Looking up a frame is a binary search on these, or a single division when every frame is as long.
+ *     </li>
+ *     <li>
+ *         <b>Events-</b> times at which the game wants to hear about it (a footstep, the hit of a swing), sorted by time
+ *     </li>
+ * </ul>
+ */
+public class AnimationClip {
+    private final int[] frames;
+    private final float[] frameEnds;
+    private final float duration;
+    private final float uniformFrameDuration; // 0 if the frames differ in length
+    private final boolean looping;
+
+    private float[] eventTimes = new float[0];
+    private int[] eventIds = new int[0];
+
+    /**
+     * @param frames    sprite index of every frame
+     * @param durations how long every frame is shown, in seconds
+     * @param looping   start over after the last frame, otherwise stay on it
+     */
+    public AnimationClip(int[] frames, float[] durations, boolean looping) {
+        if (frames.length == 0 || frames.length != durations.length) {
+            throw new IllegalArgumentException("A clip needs at least one frame and a duration for every frame");
+        }
+
+        this.frames = frames.clone();
+        this.frameEnds = new float[frames.length];
+        this.looping = looping;
+
+        float time = 0;
+        boolean uniform = true;
+        for (int i = 0; i < durations.length; i++) {
+            time += durations[i];
+            frameEnds[i] = time;
+            uniform &= durations[i] == durations[0];
+        }
+        this.duration = time;
+        this.uniformFrameDuration = uniform ? durations[0] : 0;
+    }
+
+    /**
+     * A clip where every frame is shown for the same time
+     *
+     * @param frames          sprite index of every frame
+     * @param framesPerSecond playback speed
+     * @param looping         start over after the last frame, otherwise stay on it
+     */
+    public AnimationClip(int[] frames, float framesPerSecond, boolean looping) {
+        this(frames, uniformDurations(frames.length, 1.0f / framesPerSecond), looping);
+    }
+
+    private static float[] uniformDurations(int count, float duration) {
+        float[] durations = new float[count];
+        Arrays.fill(durations, duration);
+        return durations;
+    }
+
+    /**
+     * Adds an event that fires when playback passes the time
+     *
+     * @param time    seconds from the start of the clip
+     * @param eventId number the game uses to recognize the event
+     */
+    public AnimationClip addEvent(float time, int eventId) {
+        int index = 0;
+        while (index < eventTimes.length && eventTimes[index] <= time) {
+            index++;
+        }
+
+        float[] times = new float[eventTimes.length + 1];
+        int[] ids = new int[eventIds.length + 1];
+        System.arraycopy(eventTimes, 0, times, 0, index);
+        System.arraycopy(eventIds, 0, ids, 0, index);
+        times[index] = time;
+        ids[index] = eventId;
+        System.arraycopy(eventTimes, index, times, index + 1, eventTimes.length - index);
+        System.arraycopy(eventIds, index, ids, index + 1, eventIds.length - index);
+
+        eventTimes = times;
+        eventIds = ids;
+        return this;
+    }
+
+    /**
+     * @param time seconds from the start, between 0 and the duration
+     * @return index into the frame table of the frame showing at that time
+     */
+    public int frameIndexAt(float time) {
+        int index;
+        if (uniformFrameDuration > 0) {
+            index = (int) (time / uniformFrameDuration);
+        } else {
+            // The first frame that ends after the time
+            index = Arrays.binarySearch(frameEnds, time);
+            index = index >= 0 ? index + 1 : -index - 1;
+        }
+        return Math.min(index, frames.length - 1);
+    }
+
+    /**
+     * @param time seconds from the start, between 0 and the duration
+     * @return sprite index of the frame showing at that time
+     */
+    public int spriteAt(float time) {
+        return frames[frameIndexAt(time)];
+    }
+
+    /**
+     * Brings an ever increasing play time back into the clip, wrapping when looping and stopping at the end otherwise
+     */
+    public float wrap(float time) {
+        if (time < duration) {
+            return time;
+        }
+        return looping ? time % duration : duration;
+    }
+
+    public int getFrameCount() {
+        return frames.length;
+    }
+
+    public float getDuration() {
+        return duration;
+    }
+
+    public boolean isLooping() {
+        return looping;
+    }
+
+    public int getEventCount() {
+        return eventTimes.length;
+    }
+
+    public float getEventTime(int index) {
+        return eventTimes[index];
+    }
+
+    public int getEventId(int index) {
+        return eventIds[index];
+    }
+}
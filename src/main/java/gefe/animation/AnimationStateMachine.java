@@ -0,0 +1,111 @@
+package gefe.animation;
+
+import java.util.Arrays;
+
+/**
+ * Which clip plays in which state, and how animators get from one state to the next.
+ * <p>
+ * States are small ints chosen by the game (e.g. IDLE = 0, RUN = 1, JUMP = 2), so everything is kept in
+ * arrays indexed by state. A transition has a blend time, during which the animator shows both clips and
+ * fades from the old one to the new one. A state without a declared transition to the requested state
+ * ignores the request. Many animators share the same state machine, it is not changed while they play.
+ */
+public class AnimationStateMachine {
+    private static final float NOT_ALLOWED = -1.0f;
+
+    private AnimationClip[] clips = new AnimationClip[0]; // by state
+    private float[] blendTimes = new float[0]; // [from * stateCapacity + to], NOT_ALLOWED if there is no transition
+    private int[] exitStates = new int[0]; // where a non looping clip goes when it ends, -1 to stay on the last frame
+    private float[] exitBlendTimes = new float[0];
+    private int stateCapacity = 0;
+
+    /**
+     * A state machine with a single state 0 that plays the clip
+     */
+    public static AnimationStateMachine single(AnimationClip clip) {
+        return new AnimationStateMachine().addState(0, clip);
+    }
+
+    public AnimationStateMachine addState(int state, AnimationClip clip) {
+        if (state < 0) {
+            throw new IllegalArgumentException("States can not be negative: " + state);
+        }
+        ensureCapacity(state + 1);
+        clips[state] = clip;
+        return this;
+    }
+
+    /**
+     * Allows an animator in state from to switch to state to
+     *
+     * @param blendSeconds how long both clips are blended, 0 to switch at once
+     */
+    public AnimationStateMachine addTransition(int from, int to, float blendSeconds) {
+        ensureCapacity(Math.max(from, to) + 1);
+        blendTimes[from * stateCapacity + to] = blendSeconds;
+        return this;
+    }
+
+    /**
+     * Allows every state that exists right now to switch to state to
+     */
+    public AnimationStateMachine addTransitionFromAny(int to, float blendSeconds) {
+        for (int from = 0; from < stateCapacity; from++) {
+            if (clips[from] != null && from != to) {
+                addTransition(from, to, blendSeconds);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Switches to another state when the non looping clip of this state has played to the end
+     */
+    public AnimationStateMachine setExit(int from, int to, float blendSeconds) {
+        ensureCapacity(Math.max(from, to) + 1);
+        exitStates[from] = to;
+        exitBlendTimes[from] = blendSeconds;
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= stateCapacity) {
+            return;
+        }
+
+        float[] newBlendTimes = new float[capacity * capacity];
+        Arrays.fill(newBlendTimes, NOT_ALLOWED);
+        for (int from = 0; from < stateCapacity; from++) {
+            System.arraycopy(blendTimes, from * stateCapacity, newBlendTimes, from * capacity, stateCapacity);
+        }
+
+        clips = Arrays.copyOf(clips, capacity);
+        exitStates = Arrays.copyOf(exitStates, capacity);
+        Arrays.fill(exitStates, stateCapacity, capacity, -1);
+        exitBlendTimes = Arrays.copyOf(exitBlendTimes, capacity);
+        blendTimes = newBlendTimes;
+        stateCapacity = capacity;
+    }
+
+    public AnimationClip getClip(int state) {
+        return state >= 0 && state < stateCapacity ? clips[state] : null;
+    }
+
+    /**
+     * @return the blend time of the transition, or a negative number if the transition is not allowed
+     */
+    public float getBlendTime(int from, int to) {
+        if (from < 0 || to < 0 || from >= stateCapacity || to >= stateCapacity || clips[to] == null) {
+            return NOT_ALLOWED;
+        }
+        return blendTimes[from * stateCapacity + to];
+    }
+
+    public int getExitState(int state) {
+        return exitStates[state];
+    }
+
+    public float getExitBlendTime(int state) {
+        return exitBlendTimes[state];
+    }
+}
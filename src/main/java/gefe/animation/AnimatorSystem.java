@@ -0,0 +1,455 @@
+package gefe.animation;
+
+import gefe.replay.SnapshotBuffer;
+import gefe.replay.Snapshottable;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plays sprite animations for any number of objects at once.
+ * <p>
+ * An animator is just an index into flat arrays (state, play time, speed, current sprite, ...), so advancing
+ * thousands of them is a tight loop over primitives that allocates nothing. The scene updates all of them in
+ * bulk once a frame, split into batches that can run in parallel when there are enough animators. The tasks that
+ * run the batches on the common fork join pool are made once per batch and reused every frame.
+ * <p>
+ * Every animator follows an {@link AnimationStateMachine}. While it blends from one state to another,
+ * both clips keep playing and {@link #getBlendWeight(int)} goes from 0 to 1, so the renderer can cross fade
+ * from {@link #getPreviousSprite(int)} to {@link #getSprite(int)}.
+ * <p>
+ * A snapshot copies the arrays in bulk, the state machines are kept by reference.
+ */
+public class AnimatorSystem implements Snapshottable {
+    public static final int BATCH_SIZE = 1024;
+    public static final int PARALLEL_THRESHOLD = 4 * BATCH_SIZE; // below this, splitting the work costs more than it saves
+
+    /**
+     * Receives the clip events that were passed during the last update
+     */
+    public interface EventListener {
+        void onEvent(int animator, int eventId);
+    }
+
+    private int capacity = 0;
+    private int count = 0; // highest animator index in use + 1
+    private int liveCount = 0;
+    private int[] freeList = new int[0];
+    private int freeCount = 0;
+
+    // Animator data, by animator index
+    private boolean[] alive = new boolean[0];
+    private AnimationStateMachine[] machines = new AnimationStateMachine[0];
+    private int[] states = new int[0];
+    private float[] times = new float[0];
+    private float[] speeds = new float[0];
+    private boolean[] started = new boolean[0]; // started this frame, so events at time 0 still fire
+
+    // Blending out of the previous state
+    private int[] previousStates = new int[0]; // -1 when not blending
+    private float[] previousTimes = new float[0];
+    private float[] blendElapsed = new float[0];
+    private float[] blendDurations = new float[0];
+
+    // Output, what to draw
+    private int[] sprites = new int[0];
+    private int[] previousSprites = new int[0];
+    private float[] blendWeights = new float[0];
+
+    // One event buffer and change flag per batch, so batches running in parallel never share anything
+    private EventBuffer[] eventBuffers = new EventBuffer[0];
+    private boolean[] batchChanged = new boolean[0];
+    private BatchTask[] batchTasks = new BatchTask[0];
+
+    private boolean parallel = false;
+    private float deltaTime; // for the batches of the update that is running
+
+    /**
+     * @param machine state machine to follow
+     * @param state   state to start in
+     * @return the index of the new animator
+     */
+    public int create(AnimationStateMachine machine, int state) {
+        if (machine.getClip(state) == null) {
+            throw new IllegalArgumentException("State " + state + " has no clip");
+        }
+
+        int animator;
+        if (freeCount > 0) {
+            animator = freeList[--freeCount];
+        } else {
+            if (count == capacity) {
+                grow(Math.max(64, capacity * 2));
+            }
+            animator = count++;
+        }
+
+        alive[animator] = true;
+        machines[animator] = machine;
+        speeds[animator] = 1.0f;
+        previousStates[animator] = -1;
+        enterState(animator, state, 0);
+        liveCount++;
+        return animator;
+    }
+
+    public void destroy(int animator) {
+        if (!alive[animator]) {
+            return;
+        }
+        alive[animator] = false;
+        machines[animator] = null;
+        freeList[freeCount++] = animator;
+        liveCount--;
+    }
+
+    private void grow(int newCapacity) {
+        alive = Arrays.copyOf(alive, newCapacity);
+        machines = Arrays.copyOf(machines, newCapacity);
+        states = Arrays.copyOf(states, newCapacity);
+        times = Arrays.copyOf(times, newCapacity);
+        speeds = Arrays.copyOf(speeds, newCapacity);
+        started = Arrays.copyOf(started, newCapacity);
+        previousStates = Arrays.copyOf(previousStates, newCapacity);
+        previousTimes = Arrays.copyOf(previousTimes, newCapacity);
+        blendElapsed = Arrays.copyOf(blendElapsed, newCapacity);
+        blendDurations = Arrays.copyOf(blendDurations, newCapacity);
+        sprites = Arrays.copyOf(sprites, newCapacity);
+        previousSprites = Arrays.copyOf(previousSprites, newCapacity);
+        blendWeights = Arrays.copyOf(blendWeights, newCapacity);
+        freeList = Arrays.copyOf(freeList, newCapacity);
+
+        int batches = (newCapacity + BATCH_SIZE - 1) / BATCH_SIZE;
+        int oldBatches = eventBuffers.length;
+        eventBuffers = Arrays.copyOf(eventBuffers, batches);
+        batchTasks = Arrays.copyOf(batchTasks, batches);
+        for (int b = oldBatches; b < batches; b++) {
+            eventBuffers[b] = new EventBuffer();
+            batchTasks[b] = new BatchTask(b);
+        }
+        batchChanged = Arrays.copyOf(batchChanged, batches);
+
+        capacity = newCapacity;
+    }
+
+    /**
+     * Switches the animator to another state, if its state machine has a transition for it
+     *
+     * @return true if the animator is in the state now, or was already
+     */
+    public boolean setState(int animator, int state) {
+        int current = states[animator];
+        if (current == state) {
+            return true;
+        }
+
+        float blend = machines[animator].getBlendTime(current, state);
+        if (blend < 0) {
+            return false;
+        }
+        enterState(animator, state, blend);
+        return true;
+    }
+
+    private void enterState(int animator, int state, float blend) {
+        if (blend > 0) {
+            previousStates[animator] = states[animator];
+            previousTimes[animator] = times[animator];
+            previousSprites[animator] = sprites[animator];
+            blendElapsed[animator] = 0;
+            blendDurations[animator] = blend;
+            blendWeights[animator] = 0;
+        } else {
+            previousStates[animator] = -1;
+            blendWeights[animator] = 1;
+        }
+
+        states[animator] = state;
+        times[animator] = 0;
+        started[animator] = true;
+        sprites[animator] = machines[animator].getClip(state).spriteAt(0);
+    }
+
+    /**
+     * Advances every animator
+     *
+     * @param deltaTime seconds since the last update
+     * @return true if any animator shows another sprite or blend than before
+     */
+    public boolean update(double deltaTime) {
+        this.deltaTime = (float) deltaTime;
+        int batches = (count + BATCH_SIZE - 1) / BATCH_SIZE;
+
+        if (parallel && count >= PARALLEL_THRESHOLD) {
+            for (int b = 1; b < batches; b++) {
+                batchTasks[b].reinitialize();
+                batchTasks[b].fork();
+            }
+            updateBatch(0); // this thread takes a batch as well instead of only waiting
+            for (int b = 1; b < batches; b++) {
+                batchTasks[b].join();
+            }
+        } else {
+            for (int b = 0; b < batches; b++) {
+                updateBatch(b);
+            }
+        }
+
+        boolean changed = false;
+        for (int b = 0; b < batches; b++) {
+            changed |= batchChanged[b];
+        }
+        return changed;
+    }
+
+    private void updateBatch(int batch) {
+        EventBuffer events = eventBuffers[batch];
+        events.count = 0;
+        boolean changed = false;
+
+        int end = Math.min(count, (batch + 1) * BATCH_SIZE);
+        for (int i = batch * BATCH_SIZE; i < end; i++) {
+            if (alive[i]) {
+                changed |= advance(i, events);
+            }
+        }
+
+        batchChanged[batch] = changed;
+    }
+
+    /**
+     * @return true if the animator shows something else now
+     */
+    private boolean advance(int i, EventBuffer events) {
+        AnimationStateMachine machine = machines[i];
+        int state = states[i];
+        AnimationClip clip = machine.getClip(state);
+        float step = deltaTime * speeds[i];
+
+        float oldTime = times[i];
+        float newTime = oldTime + step;
+        fireEvents(clip, oldTime, newTime, started[i], i, events);
+        started[i] = false;
+
+        if (!clip.isLooping() && newTime >= clip.getDuration()) {
+            times[i] = clip.getDuration();
+            int exit = machine.getExitState(state);
+            if (exit >= 0) {
+                enterState(i, exit, machine.getExitBlendTime(state));
+                return true;
+            }
+        } else {
+            times[i] = clip.wrap(newTime);
+        }
+
+        boolean changed = false;
+        if (previousStates[i] >= 0) {
+            AnimationClip previous = machine.getClip(previousStates[i]);
+            previousTimes[i] = previous.wrap(previousTimes[i] + step);
+            blendElapsed[i] += step;
+
+            int previousSprite = previous.spriteAt(previousTimes[i]);
+            changed = previousSprite != previousSprites[i];
+            previousSprites[i] = previousSprite;
+
+            if (blendElapsed[i] >= blendDurations[i]) {
+                previousStates[i] = -1;
+                blendWeights[i] = 1;
+            } else {
+                blendWeights[i] = blendElapsed[i] / blendDurations[i];
+            }
+            changed = true; // the weight moved
+        }
+
+        int sprite = clip.spriteAt(times[i]);
+        changed |= sprite != sprites[i];
+        sprites[i] = sprite;
+        return changed;
+    }
+
+    /**
+     * Records every event of the clip between the two play times, also across the end of a looping clip
+     */
+    private static void fireEvents(AnimationClip clip, float from, float to, boolean includeFrom, int animator,
+                                   EventBuffer events) {
+        if (clip.getEventCount() == 0) {
+            return;
+        }
+
+        float duration = clip.getDuration();
+        if (to < duration || !clip.isLooping()) {
+            fireRange(clip, from, Math.min(to, duration), includeFrom, animator, events);
+        } else if (to - from >= duration) {
+            // Went around at least once, fire everything once rather than flood the game
+            fireRange(clip, 0, duration, true, animator, events);
+        } else {
+            fireRange(clip, from, duration, includeFrom, animator, events);
+            fireRange(clip, 0, to - duration, true, animator, events);
+        }
+    }
+
+    private static void fireRange(AnimationClip clip, float from, float to, boolean includeFrom, int animator,
+                                  EventBuffer events) {
+        for (int e = 0; e < clip.getEventCount(); e++) {
+            float time = clip.getEventTime(e);
+            if (time > to) {
+                break;
+            }
+            if (time > from || (includeFrom && time == from)) {
+                events.add(animator, clip.getEventId(e));
+            }
+        }
+    }
+
+    /**
+     * Hands every event of the last update to the listener, in animator order
+     */
+    public void forEachEvent(EventListener listener) {
+        int batches = (count + BATCH_SIZE - 1) / BATCH_SIZE;
+        for (int b = 0; b < batches; b++) {
+            EventBuffer events = eventBuffers[b];
+            for (int e = 0; e < events.count; e++) {
+                listener.onEvent(events.animators[e], events.eventIds[e]);
+            }
+        }
+    }
+
+    @Override
+    public void save(SnapshotBuffer out) {
+        out.putInt(count);
+        out.putInt(liveCount);
+        out.putInt(freeCount);
+        out.putInts(freeList, freeCount);
+
+        out.putBooleans(alive, count);
+        out.putReferences(machines, count);
+        out.putInts(states, count);
+        out.putFloats(times, count);
+        out.putFloats(speeds, count);
+        out.putBooleans(started, count);
+        out.putInts(previousStates, count);
+        out.putFloats(previousTimes, count);
+        out.putFloats(blendElapsed, count);
+        out.putFloats(blendDurations, count);
+        out.putInts(sprites, count);
+        out.putInts(previousSprites, count);
+        out.putFloats(blendWeights, count);
+    }
+
+    @Override
+    public void load(SnapshotBuffer in) {
+        int savedCount = in.getInt();
+        if (savedCount > capacity) {
+            grow(savedCount);
+        }
+        // Animators created after the snapshot are gone
+        for (int i = savedCount; i < count; i++) {
+            alive[i] = false;
+            machines[i] = null;
+        }
+        count = savedCount;
+        liveCount = in.getInt();
+        freeCount = in.getInt();
+        in.getInts(freeList, freeCount);
+
+        in.getBooleans(alive, count);
+        in.getReferences(machines, count);
+        in.getInts(states, count);
+        in.getFloats(times, count);
+        in.getFloats(speeds, count);
+        in.getBooleans(started, count);
+        in.getInts(previousStates, count);
+        in.getFloats(previousTimes, count);
+        in.getFloats(blendElapsed, count);
+        in.getFloats(blendDurations, count);
+        in.getInts(sprites, count);
+        in.getInts(previousSprites, count);
+        in.getFloats(blendWeights, count);
+
+        // Events belong to the frame they were fired in
+        for (int b = 0; b < eventBuffers.length; b++) {
+            eventBuffers[b].count = 0;
+        }
+    }
+
+    /**
+     * Spread the update over all cores when there are enough animators for it to pay off
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public void setSpeed(int animator, float speed) {
+        speeds[animator] = speed;
+    }
+
+    public int getState(int animator) {
+        return states[animator];
+    }
+
+    public float getTime(int animator) {
+        return times[animator];
+    }
+
+    /**
+     * @return sprite index of the current frame of the current state
+     */
+    public int getSprite(int animator) {
+        return sprites[animator];
+    }
+
+    /**
+     * @return sprite index of the state being blended out of, only valid while the blend weight is below 1
+     */
+    public int getPreviousSprite(int animator) {
+        return previousSprites[animator];
+    }
+
+    /**
+     * @return 0 right after a transition started, up to 1 when only the current state shows
+     */
+    public float getBlendWeight(int animator) {
+        return blendWeights[animator];
+    }
+
+    public boolean isAlive(int animator) {
+        return animator >= 0 && animator < count && alive[animator];
+    }
+
+    /**
+     * @return number of animators alive
+     */
+    public int size() {
+        return liveCount;
+    }
+
+    private final class BatchTask extends RecursiveAction {
+        private final int batch;
+
+        private BatchTask(int batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        protected void compute() {
+            updateBatch(batch);
+        }
+    }
+
+    private static final class EventBuffer {
+        private int[] animators = new int[16];
+        private int[] eventIds = new int[16];
+        private int count;
+
+        private void add(int animator, int eventId) {
+            if (count == animators.length) {
+                // Only grows until it fits the busiest frame
+                animators = Arrays.copyOf(animators, count * 2);
+                eventIds = Arrays.copyOf(eventIds, count * 2);
+            }
+            animators[count] = animator;
+            eventIds[count] = eventId;
+            count++;
+        }
+    }
+}
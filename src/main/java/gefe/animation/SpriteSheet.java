@@ -0,0 +1,53 @@
+package gefe.animation;
+
+/**
+ * Cuts a texture into a grid of equally sized sprites and keeps their texture coordinates in one flat table.
+ * Sprites are numbered row by row, starting at the top left of the texture.
+ */
+public class SpriteSheet {
+    private final float[] uvs; // u0, v0, u1, v1 for every sprite
+    private final int spriteCount;
+
+    /**
+     * @param textureWidth  width of the texture in pixels
+     * @param textureHeight height of the texture in pixels
+     * @param spriteWidth   width of a single sprite in pixels
+     * @param spriteHeight  height of a single sprite in pixels
+     * @param spacing       pixels between two sprites
+     */
+    public SpriteSheet(int textureWidth, int textureHeight, int spriteWidth, int spriteHeight, int spacing) {
+        int columns = (textureWidth + spacing) / (spriteWidth + spacing);
+        int rows = (textureHeight + spacing) / (spriteHeight + spacing);
+        this.spriteCount = columns * rows;
+        this.uvs = new float[spriteCount * 4];
+
+        for (int i = 0; i < spriteCount; i++) {
+            int x = (i % columns) * (spriteWidth + spacing);
+            int y = (i / columns) * (spriteHeight + spacing);
+            uvs[i * 4] = (float) x / textureWidth;
+            uvs[i * 4 + 1] = (float) y / textureHeight;
+            uvs[i * 4 + 2] = (float) (x + spriteWidth) / textureWidth;
+            uvs[i * 4 + 3] = (float) (y + spriteHeight) / textureHeight;
+        }
+    }
+
+    public float getU0(int sprite) {
+        return uvs[sprite * 4];
+    }
+
+    public float getV0(int sprite) {
+        return uvs[sprite * 4 + 1];
+    }
+
+    public float getU1(int sprite) {
+        return uvs[sprite * 4 + 2];
+    }
+
+    public float getV1(int sprite) {
+        return uvs[sprite * 4 + 3];
+    }
+
+    public int getSpriteCount() {
+        return spriteCount;
+    }
+}
@@ -0,0 +1,60 @@
+package gefe.editor;
+
+/**
+ * A square block of tiles, the unit that is copied when the map changes and written when it is saved.
+ * <p>
+ * A chunk is never changed once it is part of a {@link TileMap}, only the {@link TileMap.Editor} that
+ * created it may still write to it.
+ */
+public final class Chunk {
+    public static final int SIZE = 32; // tiles along each side
+    public static final int SHIFT = 5; // log2 of the size
+
+    private final int chunkX, chunkY;
+    final int[] tiles; // row by row, 0 is an empty tile
+
+    Chunk(int chunkX, int chunkY, int[] tiles) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.tiles = tiles;
+    }
+
+    Chunk(int chunkX, int chunkY) {
+        this(chunkX, chunkY, new int[SIZE * SIZE]);
+    }
+
+    Chunk copy() {
+        return new Chunk(chunkX, chunkY, tiles.clone());
+    }
+
+    /**
+     * @param localX column in the chunk, 0 to {@link #SIZE}
+     * @param localY row in the chunk, 0 to {@link #SIZE}
+     */
+    public int getTile(int localX, int localY) {
+        return tiles[localY * SIZE + localX];
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkY() {
+        return chunkY;
+    }
+
+    /**
+     * Packs chunk coordinates into a single key, both have to fit in 16 bits
+     */
+    public static int key(int chunkX, int chunkY) {
+        return (chunkX << 16) | (chunkY & 0xFFFF);
+    }
+
+    public static int keyX(int key) {
+        return key >> 16;
+    }
+
+    public static int keyY(int key) {
+        return (short) key;
+    }
+}
@@ -0,0 +1,21 @@
+package gefe.editor;
+
+/**
+ * A single change to the level, as the user sees it in the undo history.
+ * <p>
+ * Commands do not have to know how to undo themselves: they turn one {@link TileMap} version into the next
+ * and the {@link EditHistory} keeps both versions around.
+ */
+public interface EditCommand {
+
+    /**
+     * @param map the version to edit
+     * @return the new version, or map itself if nothing changed
+     */
+    TileMap apply(TileMap map);
+
+    /**
+     * @return short description for the editor UI, like "Paint 12 tiles"
+     */
+    String getName();
+}
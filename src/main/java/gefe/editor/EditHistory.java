@@ -0,0 +1,148 @@
+package gefe.editor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Undo and redo for the level editor.
+ * <p>
+ * Every step remembers the {@link TileMap} versions before and after its command. Because versions share
+ * all the chunks that did not change, a step costs the chunks it touched and not a copy of the level,
+ * so the history can be thousands of steps long on big maps.
+ */
+public class EditHistory {
+    public static final int DEFAULT_MAX_STEPS = 10000;
+
+    private final int maxSteps;
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    private TileMap current;
+
+    public EditHistory(TileMap map) {
+        this(map, DEFAULT_MAX_STEPS);
+    }
+
+    public EditHistory(TileMap map, int maxSteps) {
+        this.current = map;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Applies the command and puts it on the undo stack. Redo is no longer possible afterwards.
+     *
+     * @return true if the command changed anything, commands that do not are not recorded
+     */
+    public boolean execute(EditCommand command) {
+        TileMap after = command.apply(current);
+        if (after == current) {
+            return false;
+        }
+
+        undoSteps.push(new Step(command, current, after));
+        if (undoSteps.size() > maxSteps) {
+            undoSteps.removeLast(); // forget the oldest step, the versions only it held on to can be collected
+        }
+        redoSteps.clear();
+        current = after;
+        return true;
+    }
+
+    public boolean undo() {
+        if (undoSteps.isEmpty()) {
+            return false;
+        }
+        Step step = undoSteps.pop();
+        redoSteps.push(step);
+        current = step.before;
+        return true;
+    }
+
+    public boolean redo() {
+        if (redoSteps.isEmpty()) {
+            return false;
+        }
+        Step step = redoSteps.pop();
+        undoSteps.push(step);
+        current = step.after;
+        return true;
+    }
+
+    public boolean canUndo() {
+        return !undoSteps.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoSteps.isEmpty();
+    }
+
+    /**
+     * @return name of the command that undo would revert, null if there is none
+     */
+    public String getUndoName() {
+        return undoSteps.isEmpty() ? null : undoSteps.peek().command.getName();
+    }
+
+    public String getRedoName() {
+        return redoSteps.isEmpty() ? null : redoSteps.peek().command.getName();
+    }
+
+    public int getUndoSteps() {
+        return undoSteps.size();
+    }
+
+    /**
+     * @return the version of the map that is being edited
+     */
+    public TileMap getCurrent() {
+        return current;
+    }
+
+    /**
+     * Replaces the map and forgets the history, for example after loading a level
+     */
+    public void reset(TileMap map) {
+        undoSteps.clear();
+        redoSteps.clear();
+        current = map;
+    }
+
+    /**
+     * Goes to a version of the map, for rewinding the editor to a snapshot. When the version is in the history,
+     * undo or redo is used to get there, so the history stays intact. Any other version replaces the history like {@link #reset(TileMap)}.
+     */
+    public void restore(TileMap map) {
+        if (map == current) {
+            return;
+        }
+
+        // Versions never change, so comparing them by reference is enough
+        for (Step step : undoSteps) {
+            if (step.before == map) {
+                while (current != map) {
+                    undo();
+                }
+                return;
+            }
+        }
+        for (Step step : redoSteps) {
+            if (step.after == map) {
+                while (current != map) {
+                    redo();
+                }
+                return;
+            }
+        }
+        reset(map);
+    }
+
+    private static final class Step {
+        private final EditCommand command;
+        private final TileMap before, after;
+
+        private Step(EditCommand command, TileMap before, TileMap after) {
+            this.command = command;
+            this.before = before;
+            this.after = after;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package gefe.editor;
+
+/**
+ * Fills a rectangle of tiles with the same tile, 0 erases them
+ */
+public class FillRectCommand implements EditCommand {
+    private final int x, y, width, height, tile;
+
+    public FillRectCommand(int x, int y, int width, int height, int tile) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.tile = tile;
+    }
+
+    @Override
+    public TileMap apply(TileMap map) {
+        TileMap.Editor editor = map.edit();
+        for (int row = y; row < y + height; row++) {
+            for (int col = x; col < x + width; col++) {
+                editor.setTile(col, row, tile);
+            }
+        }
+        return editor.commit();
+    }
+
+    @Override
+    public String getName() {
+        return (tile == 0 ? "Erase " : "Fill ") + width + "x" + height;
+    }
+}
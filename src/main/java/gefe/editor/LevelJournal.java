@@ -0,0 +1,330 @@
+package gefe.editor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Saves a level as a journal of chunks.
+ * <p>
+ * A save only appends the chunks that changed since the last save, found by diffing the two {@link TileMap}
+ * versions, which skips everything they share. Loading replays the journal, the last record of a chunk wins.
+ * Every record has a checksum, so a save that was cut off halfway is dropped on load instead of corrupting the level.
+ * <p>
+ * The journal grows with every save. Once it is a few times bigger than the level itself it is compacted on
+ * a background thread: the last saved version is written to a new file, the saves that happened in the
+ * meantime are copied behind it, and the new file replaces the old one.
+ * <p>
+ * File layout:
+ * <pre>
+ * Header   magic, version
+ * Record   chunk key, tile count (-1 when the chunk was removed), tiles, crc32 of everything before it
+ * </pre>
+ */
+public class LevelJournal implements AutoCloseable {
+    private static final int MAGIC = 0x57324C4A; // "W2LJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE_BYTES = 2 * Integer.BYTES;
+    private static final int CHUNK_RECORD_BYTES = (3 + Chunk.SIZE * Chunk.SIZE) * Integer.BYTES;
+
+    public static final int COMPACT_RATIO = 4; // compact when the journal is this many times the size of the level
+    public static final long MIN_COMPACT_BYTES = 256 * 1024;
+
+    private final Path path;
+    private final ExecutorService compactor;
+
+    // Guarded by this
+    private FileChannel channel;
+    private long journalBytes;
+    private TileMap lastSaved = TileMap.empty();
+    private boolean compacting = false;
+
+    /**
+     * @param path the journal file, it is created on the first save if it does not exist
+     */
+    public LevelJournal(Path path) {
+        this.path = path;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Level Journal Compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Replays the journal. Whatever is after the last complete record is cut off.
+     *
+     * @return the level as it was last saved, an empty map if there is no journal yet
+     */
+    public synchronized TileMap load() throws IOException {
+        openChannel();
+        if (channel.size() == 0) {
+            writeHeader();
+            lastSaved = TileMap.empty();
+            return lastSaved;
+        }
+
+        ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+        while (data.hasRemaining() && channel.read(data, data.position()) > 0) {
+            // keep reading
+        }
+        data.flip();
+
+        if (data.remaining() < HEADER_SIZE_BYTES || data.getInt() != MAGIC) {
+            throw new IOException("Not a level journal: " + path);
+        }
+        int version = data.getInt();
+        if (version != VERSION) {
+            throw new IOException("Level journal version " + version + " is not supported: " + path);
+        }
+
+        PersistentIntMap<Chunk> chunks = PersistentIntMap.empty();
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= 2 * Integer.BYTES) {
+            int start = data.position();
+            int key = data.getInt();
+            int tileCount = data.getInt();
+            int tileBytes = Math.max(tileCount, 0) * Integer.BYTES;
+            if ((tileCount != -1 && tileCount != Chunk.SIZE * Chunk.SIZE) || data.remaining() < tileBytes + Integer.BYTES) {
+                data.position(start);
+                break;
+            }
+
+            crc.reset();
+            crc.update(data.array(), start, 2 * Integer.BYTES + tileBytes);
+            int[] tiles = tileCount == -1 ? null : new int[tileCount];
+            for (int i = 0; i < Math.max(tileCount, 0); i++) {
+                tiles[i] = data.getInt();
+            }
+            if (data.getInt() != (int) crc.getValue()) {
+                data.position(start);
+                break;
+            }
+
+            if (tiles == null) {
+                chunks = chunks.remove(key);
+            } else {
+                chunks = chunks.put(key, new Chunk(Chunk.keyX(key), Chunk.keyY(key), tiles));
+            }
+        }
+
+        if (data.position() < channel.size()) {
+            System.err.println("WARNING: Dropping an incomplete save at the end of " + path);
+            channel.truncate(data.position());
+        }
+
+        journalBytes = data.position();
+        lastSaved = TileMap.of(chunks);
+        return lastSaved;
+    }
+
+    /**
+     * Appends every chunk that changed since the last save or load
+     *
+     * @return number of chunks written
+     */
+    public int save(TileMap map) throws IOException {
+        int written;
+        synchronized (this) {
+            openChannel();
+            if (channel.size() == 0) {
+                writeHeader();
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            int[] count = new int[1];
+            IOException[] failure = new IOException[1];
+
+            PersistentIntMap.diff(lastSaved.getChunks(), map.getChunks(), (key, oldChunk, newChunk) -> {
+                try {
+                    writeRecord(out, key, newChunk);
+                    count[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+
+            ByteBuffer records = ByteBuffer.wrap(bytes.toByteArray());
+            while (records.hasRemaining()) {
+                journalBytes += channel.write(records, journalBytes);
+            }
+            channel.force(false); // a save is only a save once it is on disk
+
+            lastSaved = map;
+            written = count[0];
+        }
+
+        compactIfNeeded();
+        return written;
+    }
+
+    private void compactIfNeeded() {
+        synchronized (this) {
+            long liveBytes = HEADER_SIZE_BYTES + (long) lastSaved.getChunks().size() * CHUNK_RECORD_BYTES;
+            if (compacting || journalBytes < MIN_COMPACT_BYTES || journalBytes < liveBytes * COMPACT_RATIO) {
+                return;
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Rewrites the journal with only the last version of every chunk, on the background thread
+     */
+    public Future<?> compact() {
+        synchronized (this) {
+            compacting = true;
+        }
+        return compactor.submit(() -> {
+            try {
+                compactNow();
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                synchronized (this) {
+                    compacting = false;
+                }
+            }
+        });
+    }
+
+    private void compactNow() throws IOException {
+        TileMap snapshot;
+        long snapshotEnd;
+        synchronized (this) {
+            snapshot = lastSaved; // versions never change, so it is safe to write it out without the lock
+            snapshotEnd = journalBytes;
+        }
+
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            IOException[] failure = new IOException[1];
+            snapshot.getChunks().forEach((key, chunk) -> {
+                try {
+                    writeRecord(data, key, chunk);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+
+            synchronized (this) {
+                // Saves made while compacting only hold changes on top of the snapshot, keep them behind it
+                long position = snapshotEnd;
+                while (position < journalBytes) {
+                    position += channel.transferTo(position, journalBytes - position, out);
+                }
+                out.force(true);
+                out.close();
+
+                // The file can not be replaced while it is open on every platform, so the channel is closed first
+                channel.close();
+                channel = null;
+                try {
+                    Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    // Either way there is a complete journal at path, the compacted one or the original, keep saving to it
+                    openChannel();
+                }
+            }
+        } finally {
+            out.close();
+            Files.deleteIfExists(compacted);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, int key, Chunk chunk) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(CHUNK_RECORD_BYTES);
+        DataOutputStream record = new DataOutputStream(bytes);
+
+        record.writeInt(key);
+        if (chunk == null) {
+            record.writeInt(-1); // the chunk was removed
+        } else {
+            record.writeInt(chunk.tiles.length);
+            for (int tile : chunk.tiles) {
+                record.writeInt(tile);
+            }
+        }
+
+        crc.update(bytes.toByteArray());
+        record.writeInt((int) crc.getValue());
+        bytes.writeTo(out);
+    }
+
+    private void openChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            journalBytes = channel.size();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        channel.write(header, 0);
+        journalBytes = HEADER_SIZE_BYTES;
+    }
+
+    /**
+     * @return size of the journal file in bytes
+     */
+    public synchronized long getJournalBytes() {
+        return journalBytes;
+    }
+
+    public synchronized TileMap getLastSaved() {
+        return lastSaved;
+    }
+
+    /**
+     * @return true if the map has changes that are not saved yet
+     */
+    public synchronized boolean isDirty(TileMap map) {
+        return map != lastSaved;
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package gefe.editor;
+
+import java.util.Arrays;
+
+/**
+ * Sets any number of tiles at once, for example every tile under a brush stroke
+ */
+public class PaintTilesCommand implements EditCommand {
+    private int[] cells = new int[3 * 16]; // x, y, tile for every painted tile
+    private int count = 0;
+
+    public PaintTilesCommand add(int x, int y, int tile) {
+        if (count * 3 == cells.length) {
+            cells = Arrays.copyOf(cells, cells.length * 2);
+        }
+        cells[count * 3] = x;
+        cells[count * 3 + 1] = y;
+        cells[count * 3 + 2] = tile;
+        count++;
+        return this;
+    }
+
+    @Override
+    public TileMap apply(TileMap map) {
+        TileMap.Editor editor = map.edit();
+        for (int i = 0; i < count; i++) {
+            editor.setTile(cells[i * 3], cells[i * 3 + 1], cells[i * 3 + 2]);
+        }
+        return editor.commit();
+    }
+
+    @Override
+    public String getName() {
+        return "Paint " + count + (count == 1 ? " tile" : " tiles");
+    }
+}
@@ -0,0 +1,277 @@
+package gefe.editor;
+
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable map from int keys to values, as a hash array mapped trie (HAMT).
+ * <p>
+ * Every change returns a new map that shares everything but the changed path with the old one. A put copies
+ * at most seven small nodes, no matter how big the map is, so keeping thousands of versions around
+ * only costs memory for what actually changed between them.
+ * <p>
+ * The key is split in groups of 5 bits, one per level of the trie. A node only has room for the children
+ * that exist, a bitmap tells which of the 32 possible ones those are.
+ *
+ * @param <V> type of the values
+ */
+public final class PersistentIntMap<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentIntMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    /**
+     * Receives the differences between two versions of a map
+     */
+    public interface DiffVisitor<V> {
+        /**
+         * @param key      key that changed
+         * @param oldValue value in the old map, null if the key was added
+         * @param newValue value in the new map, null if the key was removed
+         */
+        void changed(int key, V oldValue, V newValue);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        return (V) get(root, key, 0);
+    }
+
+    private static Object get(Object entry, int key, int shift) {
+        while (entry instanceof Node) {
+            Node node = (Node) entry;
+            int bit = bit(key, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            entry = node.children[node.index(bit)];
+            shift += BITS;
+        }
+
+        if (entry instanceof Leaf && ((Leaf) entry).key == key) {
+            return ((Leaf) entry).value;
+        }
+        return null;
+    }
+
+    /**
+     * @return a map with the key set to the value, or this map if it already was
+     */
+    public PersistentIntMap<V> put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Values can not be null, use remove");
+        }
+
+        boolean[] added = new boolean[1];
+        Node newRoot = put(root == null ? Node.EMPTY : root, key, value, 0, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentIntMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    private static Node put(Node node, int key, Object value, int shift, boolean[] added) {
+        int bit = bit(key, shift);
+        int index = node.index(bit);
+
+        if ((node.bitmap & bit) == 0) {
+            added[0] = true;
+            return node.insert(bit, index, new Leaf(key, value));
+        }
+
+        Object child = node.children[index];
+        Object newChild;
+        if (child instanceof Node) {
+            newChild = put((Node) child, key, value, shift + BITS, added);
+        } else {
+            Leaf leaf = (Leaf) child;
+            if (leaf.key == key) {
+                newChild = leaf.value == value ? leaf : new Leaf(key, value);
+            } else {
+                // Two keys share this slot, push both one level down
+                added[0] = true;
+                newChild = put(put(Node.EMPTY, leaf.key, leaf.value, shift + BITS, new boolean[1]),
+                        key, value, shift + BITS, new boolean[1]);
+            }
+        }
+
+        return newChild == child ? node : node.replace(index, newChild);
+    }
+
+    /**
+     * @return a map without the key, or this map if it did not have it
+     */
+    public PersistentIntMap<V> remove(int key) {
+        if (root == null || get(key) == null) {
+            return this;
+        }
+
+        Object newRoot = remove(root, key, 0);
+        if (newRoot == null) {
+            return empty();
+        }
+        if (newRoot instanceof Leaf) {
+            // The root always has to be a node
+            Leaf leaf = (Leaf) newRoot;
+            newRoot = Node.EMPTY.insert(bit(leaf.key, 0), 0, leaf);
+        }
+        return new PersistentIntMap<>((Node) newRoot, size - 1);
+    }
+
+    /**
+     * @return the new node, a single leaf if that is all that is left of it, or null if it is empty
+     */
+    private static Object remove(Node node, int key, int shift) {
+        int bit = bit(key, shift);
+        int index = node.index(bit);
+        Object child = node.children[index];
+
+        Object newChild = child instanceof Node ? remove((Node) child, key, shift + BITS) : null;
+        Node newNode = newChild == null ? node.delete(bit, index) : node.replace(index, newChild);
+
+        if (newNode.children.length == 0) {
+            return null;
+        }
+        if (newNode.children.length == 1 && newNode.children[0] instanceof Leaf) {
+            return newNode.children[0];
+        }
+        return newNode;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<Integer, V> action) {
+        forEach(root, (BiConsumer<Integer, Object>) (BiConsumer<?, ?>) action);
+    }
+
+    private static void forEach(Object entry, BiConsumer<Integer, Object> action) {
+        if (entry instanceof Node) {
+            for (Object child : ((Node) entry).children) {
+                forEach(child, action);
+            }
+        } else if (entry instanceof Leaf) {
+            action.accept(((Leaf) entry).key, ((Leaf) entry).value);
+        }
+    }
+
+    /**
+     * Visits every key whose value is not the same object in both maps.
+     * Parts of the trie that the two versions share are skipped without looking inside,
+     * so diffing two versions costs about as much as the changes between them.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> void diff(PersistentIntMap<V> from, PersistentIntMap<V> to, DiffVisitor<V> visitor) {
+        diff(from.root, to.root, 0, (DiffVisitor<Object>) visitor);
+    }
+
+    private static void diff(Object from, Object to, int shift, DiffVisitor<Object> visitor) {
+        if (from == to) {
+            return;
+        }
+
+        if (from instanceof Node && to instanceof Node) {
+            Node a = (Node) from, b = (Node) to;
+            int bits = a.bitmap | b.bitmap;
+            while (bits != 0) {
+                int bit = Integer.lowestOneBit(bits);
+                bits &= ~bit;
+                Object childA = (a.bitmap & bit) != 0 ? a.children[a.index(bit)] : null;
+                Object childB = (b.bitmap & bit) != 0 ? b.children[b.index(bit)] : null;
+                diff(childA, childB, shift + BITS, visitor);
+            }
+            return;
+        }
+
+        // One side is a single leaf or nothing, compare key by key
+        Object finalFrom = from;
+        int finalShift = shift;
+        forEach(to, (key, value) -> {
+            Object old = get(finalFrom, key, finalShift);
+            if (old != value) {
+                visitor.changed(key, old, value);
+            }
+        });
+        forEach(from, (key, value) -> {
+            if (get(to, key, finalShift) == null) {
+                visitor.changed(key, value, null);
+            }
+        });
+    }
+
+    private static int bit(int key, int shift) {
+        return 1 << ((key >>> shift) & MASK);
+    }
+
+    private static final class Leaf {
+        private final int key;
+        private final Object value;
+
+        private Leaf(int key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Never changed after it is created, every change makes a copy
+     */
+    private static final class Node {
+        private static final Node EMPTY = new Node(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] children; // Node or Leaf, one for every bit set in the bitmap
+
+        private Node(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        /**
+         * @return where the child for this bit is (or would go) in the children array
+         */
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private Node insert(int bit, int index, Object child) {
+            Object[] newChildren = new Object[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newChildren[index] = child;
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            return new Node(bitmap | bit, newChildren);
+        }
+
+        private Node replace(int index, Object child) {
+            Object[] newChildren = children.clone();
+            newChildren[index] = child;
+            return new Node(bitmap, newChildren);
+        }
+
+        private Node delete(int bit, int index) {
+            Object[] newChildren = new Object[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            return new Node(bitmap & ~bit, newChildren);
+        }
+    }
+}
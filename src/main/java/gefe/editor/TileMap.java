@@ -0,0 +1,114 @@
+package gefe.editor;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * One version of the tiles of a level. It never changes, editing it gives a new version.
+ * <p>
+ * The tiles live in {@link Chunk}s, kept in a {@link PersistentIntMap}. An edit only copies the chunks it touches,
+ * the new version shares every other chunk with the old one. That is what makes it cheap to keep every version
+ * on the undo stack, and to find the chunks that have to be saved.
+ */
+public final class TileMap {
+    private static final TileMap EMPTY = new TileMap(PersistentIntMap.empty());
+
+    private final PersistentIntMap<Chunk> chunks;
+
+    private TileMap(PersistentIntMap<Chunk> chunks) {
+        this.chunks = chunks;
+    }
+
+    public static TileMap empty() {
+        return EMPTY;
+    }
+
+    static TileMap of(PersistentIntMap<Chunk> chunks) {
+        return new TileMap(chunks);
+    }
+
+    /**
+     * @return the tile at the tile coordinates, 0 if it is empty
+     */
+    public int getTile(int x, int y) {
+        Chunk chunk = chunks.get(Chunk.key(x >> Chunk.SHIFT, y >> Chunk.SHIFT));
+        if (chunk == null) {
+            return 0;
+        }
+        return chunk.getTile(x & (Chunk.SIZE - 1), y & (Chunk.SIZE - 1));
+    }
+
+    public PersistentIntMap<Chunk> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return an editor to make a new version of this map with
+     */
+    public Editor edit() {
+        return new Editor(this);
+    }
+
+    /**
+     * Collects the changes for a new version. Every chunk is copied the first time it is written to,
+     * after that it is written in place, so painting a thousand tiles in one chunk copies it once.
+     */
+    public static final class Editor {
+        private final TileMap source;
+        private PersistentIntMap<Chunk> chunks;
+        private final Set<Chunk> owned = Collections.newSetFromMap(new IdentityHashMap<>()); // copies made by this editor
+        private boolean committed = false;
+
+        private Editor(TileMap source) {
+            this.source = source;
+            this.chunks = source.chunks;
+        }
+
+        /**
+         * @return the tile as it is in this edit so far
+         */
+        public int getTile(int x, int y) {
+            return TileMap.of(chunks).getTile(x, y);
+        }
+
+        public Editor setTile(int x, int y, int tile) {
+            if (committed) {
+                throw new IllegalStateException("Editor was already committed");
+            }
+
+            int chunkX = x >> Chunk.SHIFT, chunkY = y >> Chunk.SHIFT;
+            int key = Chunk.key(chunkX, chunkY);
+            int index = (y & (Chunk.SIZE - 1)) * Chunk.SIZE + (x & (Chunk.SIZE - 1));
+
+            Chunk chunk = chunks.get(key);
+            if (chunk == null) {
+                if (tile == 0) {
+                    return this; // already empty
+                }
+                chunk = new Chunk(chunkX, chunkY);
+                owned.add(chunk);
+                chunks = chunks.put(key, chunk);
+            } else if (chunk.tiles[index] == tile) {
+                return this; // do not copy a chunk for nothing
+            } else if (!owned.contains(chunk)) {
+                chunk = chunk.copy();
+                owned.add(chunk);
+                chunks = chunks.put(key, chunk);
+            }
+
+            chunk.tiles[index] = tile;
+            return this;
+        }
+
+        /**
+         * @return the new version, or the map the edit started from if no tile changed.
+         * The editor can not be used after this
+         */
+        public TileMap commit() {
+            committed = true;
+            owned.clear();
+            return chunks == source.chunks ? source : TileMap.of(chunks);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package gefe.replay;
+
+import gefe.input.KeyListener;
+import gefe.input.MouseListener;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.glfw.GLFW.GLFW_PRESS;
+import static org.lwjgl.glfw.GLFW.GLFW_RELEASE;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Everything that can make one frame of the game different from another run: the frame time and the input.
+ * <p>
+ * A frame is written as the difference to the frame before it, so a frame where nothing but time passed
+ * takes 5 bytes. Applying a frame goes through the normal {@link KeyListener} and {@link MouseListener} callbacks,
+ * so the game can not tell a replay from a player. Only the state at the frame boundary is kept, so
+ * {@link MouseListener#getDx()} which depends on how many move events arrived during a frame is not reproduced.
+ * <p>
+ * Encoding:
+ * <pre>
+ * flags          byte, which of the parts below follow
+ * delta time     float, always
+ * keys           short count, then a short per changed key: key number, highest bit set when pressed
+ * mouse position float x, float y
+ * mouse buttons  byte, a bit per button
+ * scroll         float x, float y
+ * </pre>
+ */
+public class InputFrame {
+    public static final int KEY_COUNT = 350; // same as the KeyListener
+    public static final int MOUSE_BUTTON_COUNT = 3; // same as the MouseListener
+    public static final int MAX_ENCODED_BYTES = 1 + 4 + 2 + KEY_COUNT * 2 + 8 + 1 + 8;
+
+    private static final int KEYS_CHANGED = 1;
+    private static final int MOUSE_MOVED = 1 << 1;
+    private static final int BUTTONS_CHANGED = 1 << 2;
+    private static final int SCROLLED = 1 << 3;
+    private static final int KEY_PRESSED_BIT = 0x8000;
+
+    private float deltaTime;
+    private final long[] keys = new long[(KEY_COUNT + 63) / 64]; // a bit per key
+    private float mouseX, mouseY, scrollX, scrollY;
+    private int mouseButtons; // a bit per button
+
+    /**
+     * Reads the current state of the input listeners
+     *
+     * @param deltaTime frame time to record
+     */
+    public void capture(float deltaTime) {
+        this.deltaTime = deltaTime;
+        for (int key = 0; key < KEY_COUNT; key++) {
+            setKey(key, KeyListener.isKeyPressed(key));
+        }
+
+        mouseX = MouseListener.getX();
+        mouseY = MouseListener.getY();
+        scrollX = MouseListener.getScrollX();
+        scrollY = MouseListener.getScrollY();
+        mouseButtons = 0;
+        for (int button = 0; button < MOUSE_BUTTON_COUNT; button++) {
+            if (MouseListener.mouseButtonDown(button)) {
+                mouseButtons |= 1 << button;
+            }
+        }
+    }
+
+    /**
+     * Makes the input listeners hold this frame's state, through their callbacks. Only what differs is sent,
+     * so input that arrived from the real devices in the meantime is overwritten as well.
+     */
+    public void apply() {
+        for (int key = 0; key < KEY_COUNT; key++) {
+            boolean pressed = isKeyPressed(key);
+            if (KeyListener.isKeyPressed(key) != pressed) {
+                KeyListener.keyCallback(NULL, key, 0, pressed ? GLFW_PRESS : GLFW_RELEASE, 0);
+            }
+        }
+
+        // Buttons before the position, so dragging is worked out from the new buttons
+        for (int button = 0; button < MOUSE_BUTTON_COUNT; button++) {
+            boolean down = (mouseButtons & (1 << button)) != 0;
+            if (MouseListener.mouseButtonDown(button) != down) {
+                MouseListener.mouseButtonCallback(NULL, button, down ? GLFW_PRESS : GLFW_RELEASE, 0);
+            }
+        }
+        if (MouseListener.getX() != mouseX || MouseListener.getY() != mouseY) {
+            MouseListener.mousePosCallback(NULL, mouseX, mouseY);
+        }
+        MouseListener.scrollCallback(NULL, scrollX, scrollY);
+    }
+
+    /**
+     * Writes this frame as the difference to the previous one
+     */
+    public void write(ByteBuffer out, InputFrame previous) {
+        int flagsPosition = out.position();
+        out.put((byte) 0);
+        out.putFloat(deltaTime);
+
+        int flags = 0;
+        int changedKeys = 0;
+        for (int word = 0; word < keys.length; word++) {
+            changedKeys += Long.bitCount(keys[word] ^ previous.keys[word]);
+        }
+        if (changedKeys > 0) {
+            flags |= KEYS_CHANGED;
+            out.putShort((short) changedKeys);
+            for (int word = 0; word < keys.length; word++) {
+                long changed = keys[word] ^ previous.keys[word];
+                while (changed != 0) {
+                    int key = word * 64 + Long.numberOfTrailingZeros(changed);
+                    changed &= changed - 1;
+                    out.putShort((short) (key | (isKeyPressed(key) ? KEY_PRESSED_BIT : 0)));
+                }
+            }
+        }
+        if (mouseX != previous.mouseX || mouseY != previous.mouseY) {
+            flags |= MOUSE_MOVED;
+            out.putFloat(mouseX);
+            out.putFloat(mouseY);
+        }
+        if (mouseButtons != previous.mouseButtons) {
+            flags |= BUTTONS_CHANGED;
+            out.put((byte) mouseButtons);
+        }
+        if (scrollX != previous.scrollX || scrollY != previous.scrollY) {
+            flags |= SCROLLED;
+            out.putFloat(scrollX);
+            out.putFloat(scrollY);
+        }
+
+        out.put(flagsPosition, (byte) flags);
+    }
+
+    /**
+     * Reads a frame written by {@link #write(ByteBuffer, InputFrame)}. This frame has to hold the previous frame.
+     */
+    public void read(ByteBuffer in) {
+        int flags = in.get();
+        deltaTime = in.getFloat();
+
+        if ((flags & KEYS_CHANGED) != 0) {
+            int count = in.getShort();
+            for (int i = 0; i < count; i++) {
+                int value = in.getShort() & 0xFFFF;
+                setKey(value & ~KEY_PRESSED_BIT, (value & KEY_PRESSED_BIT) != 0);
+            }
+        }
+        if ((flags & MOUSE_MOVED) != 0) {
+            mouseX = in.getFloat();
+            mouseY = in.getFloat();
+        }
+        if ((flags & BUTTONS_CHANGED) != 0) {
+            mouseButtons = in.get();
+        }
+        if ((flags & SCROLLED) != 0) {
+            scrollX = in.getFloat();
+            scrollY = in.getFloat();
+        }
+    }
+
+    public void set(InputFrame other) {
+        deltaTime = other.deltaTime;
+        System.arraycopy(other.keys, 0, keys, 0, keys.length);
+        mouseX = other.mouseX;
+        mouseY = other.mouseY;
+        scrollX = other.scrollX;
+        scrollY = other.scrollY;
+        mouseButtons = other.mouseButtons;
+    }
+
+    private void setKey(int key, boolean pressed) {
+        if (pressed) {
+            keys[key >> 6] |= 1L << key;
+        } else {
+            keys[key >> 6] &= ~(1L << key);
+        }
+    }
+
+    public boolean isKeyPressed(int key) {
+        return (keys[key >> 6] & (1L << key)) != 0;
+    }
+
+    public float getDeltaTime() {
+        return deltaTime;
+    }
+
+    public float getMouseX() {
+        return mouseX;
+    }
+
+    public float getMouseY() {
+        return mouseY;
+    }
+
+    /**
+     * @return true if the other frame has the same frame time and the same input
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof InputFrame)) return false;
+        InputFrame frame = (InputFrame) o;
+        return Float.compare(frame.deltaTime, deltaTime) == 0
+                && Arrays.equals(keys, frame.keys)
+                && Float.compare(frame.mouseX, mouseX) == 0
+                && Float.compare(frame.mouseY, mouseY) == 0
+                && Float.compare(frame.scrollX, scrollX) == 0
+                && Float.compare(frame.scrollY, scrollY) == 0
+                && mouseButtons == frame.mouseButtons;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Float.floatToIntBits(deltaTime);
+        result = 31 * result + Arrays.hashCode(keys);
+        result = 31 * result + Float.floatToIntBits(mouseX);
+        result = 31 * result + Float.floatToIntBits(mouseY);
+        result = 31 * result + mouseButtons;
+        return result;
+    }
+}
@@ -0,0 +1,76 @@
+package gefe.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Plays back a replay file written by {@link InputRecorder}.
+ * <p>
+ * Every frame the recorded input is pushed into the input listeners and the recorded frame time is handed
+ * out instead of the wall clock, so the game goes through exactly the same updates as when it was recorded.
+ */
+public class InputPlayer {
+    private final ByteBuffer data;
+    private final InputFrame frame = new InputFrame();
+    private final long seed;
+    private int frames = 0;
+
+    /**
+     * @param data the whole replay file
+     */
+    public InputPlayer(ByteBuffer data) throws IOException {
+        this.data = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        if (this.data.remaining() < InputRecorder.HEADER_SIZE_BYTES || this.data.getInt() != InputRecorder.MAGIC) {
+            throw new IOException("Not a replay");
+        }
+        int version = this.data.getInt();
+        if (version != InputRecorder.VERSION) {
+            throw new IOException("Replay version " + version + " is not supported");
+        }
+        this.seed = this.data.getLong();
+    }
+
+    /**
+     * Maps the replay file into memory
+     *
+     * @param path replay file
+     * @return InputPlayer positioned at the first frame
+     */
+    public static InputPlayer load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new InputPlayer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public boolean hasNext() {
+        return data.hasRemaining();
+    }
+
+    /**
+     * Applies the next recorded frame to the input listeners, call it once per frame after the events were polled
+     *
+     * @return the frame time to update the game with
+     */
+    public float next() {
+        frame.read(data);
+        frame.apply();
+        frames++;
+        return frame.getDeltaTime();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return frames played so far
+     */
+    public int getFrames() {
+        return frames;
+    }
+}
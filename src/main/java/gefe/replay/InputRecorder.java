@@ -0,0 +1,88 @@
+package gefe.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records the input and the frame time of every frame into a replay file, which {@link InputPlayer} plays back.
+ * <p>
+ * Frames are written as the difference to the previous frame, see {@link InputFrame}, so a minute of
+ * recording where the player holds a few keys is a few hundred kilobytes at most.
+ * <p>
+ * File layout:
+ * <pre>
+ * Header   magic, version, random seed
+ * Frame    see {@link InputFrame}, one after another until the end of the file
+ * </pre>
+ */
+public class InputRecorder implements AutoCloseable {
+    static final int MAGIC = 0x57325250; // "W2RP"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE_BYTES = 2 * Integer.BYTES + Long.BYTES;
+
+    private static final int BUFFER_SIZE_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private InputFrame previous = new InputFrame(), current = new InputFrame();
+    private final long seed;
+    private int frames = 0;
+
+    /**
+     * @param path replay file, it is overwritten
+     * @param seed seed for anything random in the game, so the replay makes the same choices
+     */
+    public InputRecorder(Path path, long seed) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.seed = seed;
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(seed);
+    }
+
+    /**
+     * Records the current state of the input listeners, call it once per frame after the events were polled
+     *
+     * @param deltaTime frame time the game is updated with this frame
+     */
+    public void record(float deltaTime) throws IOException {
+        current.capture(deltaTime);
+        if (buffer.remaining() < InputFrame.MAX_ENCODED_BYTES) {
+            flush();
+        }
+        current.write(buffer, previous);
+
+        InputFrame swap = previous;
+        previous = current;
+        current = swap;
+        frames++;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,73 @@
+package gefe.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+/**
+ * Stand in for a network connection between two players, inside one process.
+ * <p>
+ * Input frames are encoded exactly as in a replay file and arrive a fixed number of ticks after they were sent,
+ * so the rollback and replay code can be run and checked without a network or a second machine.
+ * Packet buffers are pooled.
+ */
+public class LoopbackChannel {
+    private final int latency; // in ticks
+    private final ArrayDeque<ByteBuffer> inFlight = new ArrayDeque<>();
+    private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+    private final InputFrame lastSent = new InputFrame();
+    private long tick = 0;
+
+    /**
+     * @param latency number of ticks before a sent frame can be received
+     */
+    public LoopbackChannel(int latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Sends a frame, encoded as the difference to the frame sent before it
+     */
+    public void send(InputFrame frame) {
+        ByteBuffer packet = pool.isEmpty()
+                ? ByteBuffer.allocate(Long.BYTES + InputFrame.MAX_ENCODED_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                : pool.poll();
+        packet.clear();
+        packet.putLong(tick + latency);
+        frame.write(packet, lastSent);
+        packet.flip();
+
+        lastSent.set(frame);
+        inFlight.add(packet);
+    }
+
+    /**
+     * Receives the next frame that has arrived
+     *
+     * @param into has to hold the frame received before, the new frame is decoded into it
+     * @return false if no frame has arrived yet
+     */
+    public boolean receive(InputFrame into) {
+        ByteBuffer packet = inFlight.peek();
+        if (packet == null || packet.getLong(0) > tick) {
+            return false;
+        }
+
+        inFlight.poll();
+        packet.position(Long.BYTES);
+        into.read(packet);
+        pool.add(packet);
+        return true;
+    }
+
+    /**
+     * Lets time pass, call it once per frame
+     */
+    public void tick() {
+        tick++;
+    }
+
+    public int getPending() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,215 @@
+package gefe.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A reusable buffer that state is saved into, see {@link Snapshottable}.
+ * <p>
+ * The buffer grows to the biggest snapshot written into it and is then reused, so saving every frame
+ * allocates nothing. Arrays are written in tight loops straight into the buffer, which keeps a snapshot of
+ * ten thousand objects well under a millisecond.
+ * <p>
+ * Objects that are shared and never change, like a state machine or an immutable level, are not serialized
+ * but kept by reference. A snapshot is therefore only valid in the process that wrote it.
+ */
+public class SnapshotBuffer {
+    private ByteBuffer data;
+    private Object[] references = new Object[16];
+    private int referenceCount = 0;
+    private int referenceRead = 0;
+    private int size = 0;
+
+    public SnapshotBuffer() {
+        this(64 * 1024);
+    }
+
+    public SnapshotBuffer(int initialSizeBytes) {
+        this.data = ByteBuffer.allocateDirect(initialSizeBytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Saves a snapshot of the state into this buffer, replacing the one it held
+     */
+    public void save(Snapshottable state) {
+        data.clear();
+        Arrays.fill(references, 0, referenceCount, null);
+        referenceCount = 0;
+
+        state.save(this);
+        size = data.position();
+    }
+
+    /**
+     * Puts the state back to the snapshot in this buffer, it can be loaded any number of times
+     */
+    public void load(Snapshottable state) {
+        data.position(0).limit(size);
+        referenceRead = 0;
+
+        state.load(this);
+        data.limit(data.capacity());
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (data.remaining() >= bytes) {
+            return;
+        }
+        int newSize = data.capacity();
+        while (newSize - data.position() < bytes) {
+            newSize *= 2;
+        }
+
+        ByteBuffer newData = ByteBuffer.allocateDirect(newSize).order(ByteOrder.nativeOrder());
+        data.flip();
+        newData.put(data);
+        data = newData;
+    }
+
+    public void putInt(int value) {
+        ensureRemaining(Integer.BYTES);
+        data.putInt(value);
+    }
+
+    public void putLong(long value) {
+        ensureRemaining(Long.BYTES);
+        data.putLong(value);
+    }
+
+    public void putFloat(float value) {
+        ensureRemaining(Float.BYTES);
+        data.putFloat(value);
+    }
+
+    public void putDouble(double value) {
+        ensureRemaining(Double.BYTES);
+        data.putDouble(value);
+    }
+
+    public void putBoolean(boolean value) {
+        ensureRemaining(1);
+        data.put(value ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * Writes the first count values of the array
+     */
+    public void putInts(int[] values, int count) {
+        ensureRemaining(count * Integer.BYTES);
+        for (int i = 0; i < count; i++) {
+            data.putInt(values[i]);
+        }
+    }
+
+    public void putFloats(float[] values, int count) {
+        ensureRemaining(count * Float.BYTES);
+        for (int i = 0; i < count; i++) {
+            data.putFloat(values[i]);
+        }
+    }
+
+    public void putBooleans(boolean[] values, int count) {
+        ensureRemaining(count);
+        for (int i = 0; i < count; i++) {
+            data.put(values[i] ? (byte) 1 : (byte) 0);
+        }
+    }
+
+    /**
+     * Keeps an object by reference, it must not change while the snapshot is in use
+     */
+    public void putReference(Object value) {
+        if (referenceCount == references.length) {
+            references = Arrays.copyOf(references, referenceCount * 2);
+        }
+        references[referenceCount++] = value;
+    }
+
+    /**
+     * Keeps the first count objects of the array by reference
+     */
+    public void putReferences(Object[] values, int count) {
+        if (referenceCount + count > references.length) {
+            references = Arrays.copyOf(references, Math.max(referenceCount + count, references.length * 2));
+        }
+        System.arraycopy(values, 0, references, referenceCount, count);
+        referenceCount += count;
+    }
+
+    public int getInt() {
+        return data.getInt();
+    }
+
+    public long getLong() {
+        return data.getLong();
+    }
+
+    public float getFloat() {
+        return data.getFloat();
+    }
+
+    public double getDouble() {
+        return data.getDouble();
+    }
+
+    public boolean getBoolean() {
+        return data.get() != 0;
+    }
+
+    /**
+     * Reads count values into the start of the array
+     */
+    public void getInts(int[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            values[i] = data.getInt();
+        }
+    }
+
+    public void getFloats(float[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            values[i] = data.getFloat();
+        }
+    }
+
+    public void getBooleans(boolean[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            values[i] = data.get() != 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getReference() {
+        return (T) references[referenceRead++];
+    }
+
+    public void getReferences(Object[] values, int count) {
+        System.arraycopy(references, referenceRead, values, 0, count);
+        referenceRead += count;
+    }
+
+    /**
+     * @return size of the saved snapshot in bytes, not counting the objects kept by reference
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if both buffers hold the same bytes and the same references, to check a replay against a recording
+     */
+    public boolean contentEquals(SnapshotBuffer other) {
+        if (size != other.size || referenceCount != other.referenceCount) {
+            return false;
+        }
+        for (int i = 0; i < referenceCount; i++) {
+            if (references[i] != other.references[i]) {
+                return false;
+            }
+        }
+        ByteBuffer a = data.duplicate(), b = other.data.duplicate();
+        a.position(0).limit(size);
+        b.position(0).limit(other.size);
+        return a.equals(b);
+    }
+}
@@ -0,0 +1,63 @@
+package gefe.replay;
+
+/**
+ * Keeps a snapshot of each of the last few frames, so the game can be rewound to any of them, for instance
+ * when input for an earlier frame arrives late and the frames after it have to be simulated again.
+ * <p>
+ * The buffers are reused round robin, once every slot was written a snapshot costs no allocation at all.
+ */
+public class SnapshotRing {
+    private final SnapshotBuffer[] buffers;
+    private final long[] frames;
+
+    /**
+     * @param length number of frames to keep
+     */
+    public SnapshotRing(int length) {
+        this.buffers = new SnapshotBuffer[length];
+        this.frames = new long[length];
+        for (int i = 0; i < length; i++) {
+            this.buffers[i] = new SnapshotBuffer();
+            this.frames[i] = -1;
+        }
+    }
+
+    /**
+     * Saves the state as it is at the given frame, overwriting the oldest frame in the ring
+     */
+    public void save(long frame, Snapshottable state) {
+        int slot = slot(frame);
+        buffers[slot].save(state);
+        frames[slot] = frame;
+    }
+
+    /**
+     * Rewinds the state to the given frame
+     *
+     * @return false if that frame is not in the ring (anymore), the state is left as it is
+     */
+    public boolean load(long frame, Snapshottable state) {
+        SnapshotBuffer buffer = get(frame);
+        if (buffer == null) {
+            return false;
+        }
+        buffer.load(state);
+        return true;
+    }
+
+    /**
+     * @return the snapshot of the given frame, or null if that frame is not in the ring
+     */
+    public SnapshotBuffer get(long frame) {
+        int slot = slot(frame);
+        return frame >= 0 && frames[slot] == frame ? buffers[slot] : null;
+    }
+
+    private int slot(long frame) {
+        return (int) Math.floorMod(frame, (long) buffers.length);
+    }
+
+    public int length() {
+        return buffers.length;
+    }
+}
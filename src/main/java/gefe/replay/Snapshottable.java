@@ -0,0 +1,13 @@
+package gefe.replay;
+
+/**
+ * State that can be saved into a {@link SnapshotBuffer} and put back later, to rewind the game a few frames
+ * or to check that a replay ends up in the same state as the recording.
+ * <p>
+ * {@link #load(SnapshotBuffer)} has to read exactly what {@link #save(SnapshotBuffer)} wrote, in the same order.
+ */
+public interface Snapshottable {
+    void save(SnapshotBuffer out);
+
+    void load(SnapshotBuffer in);
+}
@@ -24,8 +24,22 @@ public class Camera {
 
     public Vector2f position; // camera position in the world
 
+    // Dimensions of the camera in world units
+    private float projectionWidth, projectionHeight;
+
     public Camera(Vector2f position) {
+        this(position, 32.0f * 40.0f, 32.0f * 21.0f);
+    }
+
+    /**
+     * @param position         camera position in the world
+     * @param projectionWidth  how many world units the camera sees horizontally
+     * @param projectionHeight how many world units the camera sees vertically
+     */
+    public Camera(Vector2f position, float projectionWidth, float projectionHeight) {
         this.position = position;
+        this.projectionWidth = projectionWidth;
+        this.projectionHeight = projectionHeight;
         this.projectionMatrix = new Matrix4f();
         this.viewMatrix = new Matrix4f();
         adjustProjection();
@@ -36,7 +50,16 @@ public class Camera {
      */
     public void adjustProjection() {
         // Dimensions of the camera
-        projectionMatrix.setOrtho(0.0f, 32.0f * 40.0f, 0.0f, 32.0f * 21.0f, 0.0f, 100.0f);
+        projectionMatrix.setOrtho(0.0f, projectionWidth, 0.0f, projectionHeight, 0.0f, 100.0f);
+    }
+
+    /**
+     * Changes how many world units the camera sees, for zooming
+     */
+    public void setProjectionSize(float projectionWidth, float projectionHeight) {
+        this.projectionWidth = projectionWidth;
+        this.projectionHeight = projectionHeight;
+        adjustProjection();
     }
 
     /**
@@ -79,4 +102,18 @@ public class Camera {
     public Matrix4f getProjectionMatrix() {
         return projectionMatrix;
     }
+
+    /**
+     * @return how many world units the camera sees horizontally, from its position to the right
+     */
+    public float getProjectionWidth() {
+        return projectionWidth;
+    }
+
+    /**
+     * @return how many world units the camera sees vertically, from its position up
+     */
+    public float getProjectionHeight() {
+        return projectionHeight;
+    }
 }
@@ -1,8 +1,29 @@
 package gefe.visual;
 
-public abstract class Scene {
+import gefe.animation.AnimatorSystem;
+import gefe.replay.SnapshotBuffer;
+import gefe.replay.Snapshottable;
+import org.joml.Vector2f;
+import renderer.pipeline.LightList;
 
-    protected Camera camera;
+public abstract class Scene implements Snapshottable {
+
+    /**
+     * Camera of the main viewport, scenes that need another view replace it in init
+     */
+    protected Camera camera = new Camera(new Vector2f());
+
+    /**
+     * Sprite animations of everything in the scene, advanced in bulk before every update
+     */
+    protected final AnimatorSystem animators = new AnimatorSystem();
+
+    /**
+     * Point lights, drawn by the lighting pass of every viewport that shows the scene
+     */
+    protected final LightList lights = new LightList();
+
+    private long version = 0; // goes up whenever something visible changes
 
     public Scene() {
 
@@ -12,5 +33,87 @@ public abstract class Scene {
 
     }
 
+    /**
+     * Called when the scene is replaced by another one or the window closes, to let go of files and threads
+     */
+    public void destroy(){
+
+    }
+
+    /**
+     * Advances every animator of the scene, called once a frame right before {@link #update(double)}
+     * so the update can react to the animation events of this frame.
+     */
+    public void updateAnimations(double deltaTime){
+        if (animators.update(deltaTime)) {
+            markChanged();
+        }
+    }
+
+    /**
+     * Game logic, called once a frame before anything is rendered
+     */
     public abstract void update(double deltaTime);
+
+    /**
+     * Draws the scene as seen by the camera. Can be called several times a frame, once for every
+     * {@link Viewport} that shows this scene, or not at all when none of them changed.
+     *
+     * @param camera camera of the viewport that is being rendered
+     */
+    public void render(Camera camera){
+
+    }
+
+    /**
+     * @return true if the scene changes every frame (animation, physics), so its viewports always have to redraw.
+     * Scenes that only change on events return false and call {@link #markChanged()}.
+     */
+    public boolean isContinuous(){
+        return true;
+    }
+
+    /**
+     * Tells the viewports showing this scene that they have to redraw
+     */
+    public void markChanged(){
+        version++;
+    }
+
+    /**
+     * Saves everything the game logic changes, so the scene can be rewound to this frame.
+     * Scenes with state of their own override this and call super first.
+     */
+    @Override
+    public void save(SnapshotBuffer out){
+        out.putFloat(camera.position.x);
+        out.putFloat(camera.position.y);
+        animators.save(out);
+        lights.save(out);
+    }
+
+    @Override
+    public void load(SnapshotBuffer in){
+        camera.position.x = in.getFloat();
+        camera.position.y = in.getFloat();
+        animators.load(in);
+        lights.load(in);
+        markChanged();
+    }
+
+    public long getVersion(){
+        return version;
+    }
+
+    public AnimatorSystem getAnimators(){
+        return animators;
+    }
+
+    public LightList getLights(){
+        return lights;
+    }
+
+    public Camera getCamera(){
+        return camera;
+    }
 }
@@ -0,0 +1,224 @@
+package gefe.visual;
+
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import renderer.Framebuffer;
+import renderer.pipeline.RenderPipeline;
+
+import static org.lwjgl.opengl.GL32C.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * A rectangle of a {@link Window} that shows a scene through its own camera.
+ * <p>
+ * The scene is rendered into the framebuffer of the viewport, and the window draws that texture into the rectangle.
+ * A viewport only renders again when something it shows changed: the scene, its camera, or its size.
+ * Otherwise the texture from last time is reused, so an idle editor costs next to no GPU time.
+ * <p>
+ * Lighting and post processing are done by the {@link RenderPipeline} of the viewport, so every viewport
+ * can pick its own effects, a minimap does not need bloom.
+ */
+public class Viewport {
+
+    private Scene scene;
+    private Camera camera;
+
+    // Where the viewport sits in the window, as fractions of the window size from the bottom left
+    private float x, y, width, height;
+    private Vector4f clearColor;
+
+    private Framebuffer framebuffer; // created on the first render, it needs the main context
+    private final RenderPipeline pipeline = new RenderPipeline();
+    private long renderFence = NULL; // signaled when the GPU finished the last render, NULL once it was presented
+
+    // What was rendered last time, to find out if it has to render again
+    private boolean dirty = true;
+    private long renderedSceneVersion = -1;
+    private long renderedLightsVersion = -1;
+    private long renderedPipelineVersion = -1;
+    private final Vector2f renderedCameraPosition = new Vector2f(Float.NaN, Float.NaN);
+    private final Matrix4f renderedProjection = new Matrix4f();
+    private int renders = 0, skips = 0;
+
+    /**
+     * A viewport that covers the whole window
+     */
+    public Viewport(Scene scene, Camera camera) {
+        this(scene, camera, 0.0f, 0.0f, 1.0f, 1.0f);
+    }
+
+    /**
+     * @param scene  scene to show
+     * @param camera camera to look at the scene through
+     * @param x      left of the viewport, as a fraction of the window width
+     * @param y      bottom of the viewport, as a fraction of the window height
+     * @param width  width as a fraction of the window width
+     * @param height height as a fraction of the window height
+     */
+    public Viewport(Scene scene, Camera camera, float x, float y, float width, float height) {
+        this.scene = scene;
+        this.camera = camera;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.clearColor = new Vector4f(0.0f, 0.0f, 0.0f, 1.0f);
+    }
+
+    /**
+     * Renders the scene into the framebuffer, if anything changed since last time
+     *
+     * @param windowWidth  width of the window framebuffer in pixels
+     * @param windowHeight height of the window framebuffer in pixels
+     * @return true if it rendered, false if the texture from last time is still up to date
+     */
+    boolean render(int windowWidth, int windowHeight) {
+        int pixelWidth = Math.max(1, Math.round(width * windowWidth));
+        int pixelHeight = Math.max(1, Math.round(height * windowHeight));
+        if (framebuffer == null) {
+            framebuffer = new Framebuffer(pixelWidth, pixelHeight);
+            dirty = true;
+        } else if (framebuffer.resize(pixelWidth, pixelHeight)) {
+            dirty = true;
+        }
+
+        if (scene == null || camera == null || !needsRender()) {
+            skips++;
+            return false;
+        }
+
+        pipeline.render(scene, camera, scene.getLights(), framebuffer, clearColor, Window.getRenderTargets());
+        deleteFence();
+        renderFence = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+
+        dirty = false;
+        renderedSceneVersion = scene.getVersion();
+        renderedLightsVersion = scene.getLights().getVersion();
+        renderedPipelineVersion = pipeline.getVersion();
+        renderedCameraPosition.set(camera.position);
+        renderedProjection.set(camera.getProjectionMatrix());
+        renders++;
+        return true;
+    }
+
+    private boolean needsRender() {
+        return dirty
+                || scene.isContinuous()
+                || scene.getVersion() != renderedSceneVersion
+                || scene.getLights().getVersion() != renderedLightsVersion
+                || pipeline.getVersion() != renderedPipelineVersion
+                || !camera.position.equals(renderedCameraPosition)
+                || !camera.getProjectionMatrix().equals(renderedProjection);
+    }
+
+    /**
+     * Forces a render next frame, for changes the viewport can not see itself
+     */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    public void setScene(Scene scene, Camera camera) {
+        this.scene = scene;
+        this.camera = camera;
+        dirty = true;
+    }
+
+    public void setBounds(float x, float y, float width, float height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        dirty = true;
+    }
+
+    /**
+     * Color the framebuffer is cleared to before rendering. The same object can be shared, for example with the window.
+     */
+    public void setClearColor(Vector4f clearColor) {
+        this.clearColor = clearColor;
+        dirty = true;
+    }
+
+    /**
+     * @return the lighting and post processing settings of this viewport, and their GPU timings
+     */
+    public RenderPipeline getPipeline() {
+        return pipeline;
+    }
+
+    public Scene getScene() {
+        return scene;
+    }
+
+    public Camera getCamera() {
+        return camera;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the texture with the last render, 0 before the first one
+     */
+    public int getTextureID() {
+        return framebuffer == null ? 0 : framebuffer.getTextureID();
+    }
+
+    /**
+     * @return how often the viewport rendered
+     */
+    public int getRenders() {
+        return renders;
+    }
+
+    /**
+     * @return how often the viewport was skipped because nothing changed
+     */
+    public int getSkips() {
+        return skips;
+    }
+
+    /**
+     * Makes the current context wait until the GPU finished the last render, before it samples the texture.
+     * Only the GPU waits, not the CPU. Sync objects are shared between contexts, so this works in every window.
+     */
+    void waitForRender() {
+        if (renderFence != NULL) {
+            glWaitSync(renderFence, 0, GL_TIMEOUT_IGNORED);
+        }
+    }
+
+    /**
+     * Drops the fence of the last render, once every window that shows it has waited on it
+     */
+    void deleteFence() {
+        if (renderFence != NULL) {
+            glDeleteSync(renderFence);
+            renderFence = NULL;
+        }
+    }
+
+    void delete() {
+        deleteFence();
+        pipeline.delete();
+        if (framebuffer != null) {
+            framebuffer.delete();
+            framebuffer = null;
+        }
+    }
+}
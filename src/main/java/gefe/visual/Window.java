@@ -1,29 +1,51 @@
 package gefe.visual;
 
+import audio.AudioEngine;
 import gefe.LevelEditorScene;
 import gefe.LevelScene;
 import gefe.input.GamepadListener;
 import gefe.input.KeyListener;
 import gefe.input.MouseListener;
+import gefe.replay.InputPlayer;
+import gefe.replay.InputRecorder;
+import org.joml.Vector4f;
 import org.lwjgl.Version;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryStack;
+import renderer.Shader;
+import renderer.pipeline.RenderTargetPool;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.lwjgl.glfw.Callbacks.glfwFreeCallbacks;
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL13C.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13C.glActiveTexture;
+import static org.lwjgl.opengl.GL30C.*;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
 /**
  * Object to visualize the game in.
- * This can only be created once and will function as the main Window for all gaming states.
+ * The main window can only be created once and will function as the Window for all gaming states.
+ * <p>
+ * Extra windows (like the tile palette of the level editor) are made with {@link #create(String, int, int)}.
+ * They share their OpenGL context with the main window, so textures, buffers and shaders are only uploaded once.
+ * What a window shows is made of {@link Viewport}s. Every viewport is rendered into its own framebuffer in the main
+ * context, and each window then draws those textures into its viewport rectangles.
  */
 public class Window {
 
     private int width, height;
     private String title;
-    private static float r, g, b, a;
+    private final Vector4f clearColor; // rgba, behind the viewports
     private float fps; // frames per second
 
     /**
@@ -31,45 +53,131 @@ public class Window {
      */
     private long glfwWindow;
 
+    /**
+     * The OpenGL functions of the context of this window
+     */
+    private GLCapabilities capabilities;
+
+    /**
+     * Empty vertex array to draw the viewports with. Vertex arrays are not shared between contexts, so every window has its own.
+     */
+    private int blitVaoID;
+
+    private final List<Viewport> viewports = new ArrayList<>();
+    private boolean presentNeeded = true; // something changed since the window was last drawn
+
     /**
      * This Window object will be our Singleton object
      */
     private static Window window = null;
 
+    /**
+     * Every open window, the main window first
+     */
+    private static final List<Window> windows = new ArrayList<>();
+
+    /**
+     * Draws viewport textures into a window, shader programs are shared so one is enough for every window
+     */
+    private static Shader blitShader = null;
+
+    /**
+     * Temporary render targets for the lighting and post processing of every viewport
+     */
+    private static final RenderTargetPool renderTargets = new RenderTargetPool();
+
+    /**
+     * Viewport of the main window that always shows the current scene through its own camera
+     */
+    private static Viewport mainViewport = null;
+
     /**
      * Current Scene in the Window
      */
     private static Scene currentScene = null;
 
     /**
-     * This constructor is private because we only want one window built
-     * and only this class can create it.
+     * Sound effects and music for all scenes
+     */
+    private static AudioEngine audio = null;
+
+    /**
+     * Records the input and frame times while it is set, see {@link #startRecording(int, Path, long)}
+     */
+    private static InputRecorder recorder = null;
+
+    /**
+     * Feeds recorded input and frame times to the game instead of the real ones while it is set
+     */
+    private static InputPlayer player = null;
+
+    /**
+     * Seed of the recording or replay, so randomness in the game repeats as well
+     */
+    private static long seed = 0;
+
+    /**
+     * How long to wait for events when no window had to be drawn, instead of spinning without v-sync
      */
-    private Window() {
-        this.width = 800;
-        this.height = 800;
-        this.title = "Super Perico";
+    private static final double IDLE_WAIT_SECONDS = 1.0 / 60.0;
 
-        r = 1;
-        g = 1;
-        b = 1;
-        a = 1;
+    /**
+     * This constructor is private because windows are either the main window from {@link #get()},
+     * or made with {@link #create(String, int, int)} once the main window is running.
+     */
+    private Window(String title, int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.title = title;
+        this.clearColor = new Vector4f(1, 1, 1, 1);
     }
 
     public static Window get() {
         if (Window.window == null) {
-            Window.window = new Window();
+            Window.window = new Window("Super Perico", 800, 800);
         }
 
         return Window.window;
     }
 
+    /**
+     * Opens an extra window that shares the OpenGL resources of the main window.
+     * The main window has to be initialized already.
+     *
+     * @param title  window title
+     * @param width  width in screen coordinates
+     * @param height height in screen coordinates
+     * @return Window without viewports, add some with {@link #addViewport(Viewport)}
+     */
+    public static Window create(String title, int width, int height) {
+        Window main = get();
+        if (main.glfwWindow == NULL) {
+            throw new IllegalStateException("The main window has to be initialized before creating another window");
+        }
+
+        Window extra = new Window(title, width, height);
+        extra.createWindow(main.glfwWindow);
+        main.makeContextCurrent(); // the rest of the frame expects the main context
+        return extra;
+    }
+
     public void run() {
         System.out.println("LWJGL Activated! - version: " + Version.getVersion());
 
         init();
         render();
 
+        stopRecording();
+        currentScene.destroy();
+        audio.close();
+
+        // Close the extra windows first, their viewports live in the main context
+        closeExtraWindows();
+        for (Viewport viewport : viewports) {
+            viewport.delete();
+        }
+        renderTargets.delete();
+
         // Free the window callbacks and destroy the window
         glfwFreeCallbacks(glfwWindow);
         glfwDestroyWindow(glfwWindow);
@@ -93,6 +201,40 @@ public class Window {
             throw new IllegalStateException("Unable to initialize GLFW");
         }
 
+        // Create the window on the primary monitor, it is the one every other window shares with
+        createWindow(NULL);
+
+        // Set up Joystick/Gamepad callbacks and forward keystroke to KeyListener methods
+        glfwSetJoystickCallback(GamepadListener::gamePadCallback);
+
+        blitShader = new Shader("assets/shaders/blit.glsl");
+        blitShader.compile();
+        blitShader.link();
+
+        // Fall back to silence when there is no sound hardware, the game should still run
+        try {
+            audio = AudioEngine.createOpenAL();
+        } catch (IllegalStateException e) {
+            System.err.println("WARNING: " + e.getMessage() + ", running without sound");
+            audio = AudioEngine.createHeadless();
+        }
+
+        // The main viewport is cleared with the window color, so fading the window fades the scene
+        mainViewport = new Viewport(null, null);
+        mainViewport.setClearColor(clearColor);
+        addViewport(mainViewport);
+
+        changeScene(0);
+    }
+
+    /**
+     * Creates the GLFW window and its OpenGL context
+     *
+     * @param share window to share the context with, NULL for the main window
+     */
+    private void createWindow(long share) {
+        boolean main = share == NULL;
+
         // Configure GLFW
         // Will give hints to do the basic window operations: resize, close, etc.
         glfwDefaultWindowHints();
@@ -104,11 +246,10 @@ public class Window {
         glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
         // Window is resizable
         glfwWindowHint(GLFW.GLFW_RESIZABLE, GLFW.GLFW_TRUE);
-        // Window is maximized when opened
-        glfwWindowHint(GLFW.GLFW_MAXIMIZED, GLFW.GLFW_TRUE);
+        // The main window is maximized when opened
+        glfwWindowHint(GLFW.GLFW_MAXIMIZED, main ? GLFW.GLFW_TRUE : GLFW.GLFW_FALSE);
 
-        // Create the window on the primary monitor and do not worry about sharing
-        glfwWindow = glfwCreateWindow(this.width, this.height, this.title, NULL, NULL);
+        glfwWindow = glfwCreateWindow(this.width, this.height, this.title, NULL, share);
         if (glfwWindow == NULL) {
             throw new IllegalStateException("Failed to create GLFW Window");
         }
@@ -121,13 +262,19 @@ public class Window {
         // Set up key callbacks and forward keystroke to KeyListener methods
         glfwSetKeyCallback(glfwWindow, KeyListener::keyCallback);
 
-        // Set up Joystick/Gamepad callbacks and forward keystroke to KeyListener methods
-        glfwSetJoystickCallback(GamepadListener::gamePadCallback);
+        // Keep track of the size in pixels, viewports are sized after it
+        glfwSetFramebufferSizeCallback(glfwWindow, (w, newWidth, newHeight) -> {
+            this.width = newWidth;
+            this.height = newHeight;
+            this.presentNeeded = true;
+        });
+        // The window system lost what was on screen (e.g. uncovered), draw it again even if nothing changed
+        glfwSetWindowRefreshCallback(glfwWindow, w -> this.presentNeeded = true);
 
         // Make the OpenGL context current
         glfwMakeContextCurrent(glfwWindow);
-        // Enable v-sync (buffer swapping) there is no wait time between frames swapping
-        glfwSwapInterval(1);
+        // Enable v-sync (buffer swapping) for the main window only, otherwise every window would wait for it in turn
+        glfwSwapInterval(main ? 1 : 0);
 
         // Make the window visible
         glfwShowWindow(glfwWindow);
@@ -137,9 +284,20 @@ public class Window {
         // LWJGL detects the context that is current in the current thread,
         // creates the GLCapabilities instance and makes the OpenGL
         // bindings available for use.
-        GL.createCapabilities();
+        capabilities = GL.createCapabilities();
 
-        changeScene(0);
+        blitVaoID = glGenVertexArrays();
+
+        // The window may not be the size that was asked for (maximized, high DPI screens)
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer pWidth = stack.mallocInt(1);
+            IntBuffer pHeight = stack.mallocInt(1);
+            glfwGetFramebufferSize(glfwWindow, pWidth, pHeight);
+            this.width = pWidth.get(0);
+            this.height = pHeight.get(0);
+        }
+
+        windows.add(this);
     }
 
     /**
@@ -157,14 +315,20 @@ public class Window {
             // invoked during this call.
             glfwPollEvents();
 
-            glClearColor(r, g, b, a); // gives the window its color
-            glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT); // clear the framebuffer
-
-            if (deltaTime >= 0){
-                currentScene.update(deltaTime);
+            float frameTime = nextFrameTime(deltaTime);
+            if (frameTime >= 0){
+                currentScene.updateAnimations(frameTime);
+                currentScene.update(frameTime);
             }
 
-            glfwSwapBuffers(glfwWindow); // swap the color buffers
+            audio.update(); // refill the music streams
+
+            renderViewports();
+            renderTargets.endFrame();
+            if (!presentWindows()) {
+                // Nothing changed, so there was no buffer swap to wait on
+                glfwWaitEventsTimeout(IDLE_WAIT_SECONDS);
+            }
 
             // Calculate fps
             fps = (float) Math.abs(1.0 / deltaTime);
@@ -176,7 +340,241 @@ public class Window {
         }
     }
 
+    /**
+     * Records this frame, or replaces it with the recorded one when a replay is running
+     *
+     * @param deltaTime measured frame time
+     * @return frame time to update the scene with
+     */
+    private static float nextFrameTime(float deltaTime) {
+        if (player != null) {
+            if (player.hasNext()) {
+                return player.next();
+            }
+            player = null; // replay finished, the real input takes over
+        } else if (recorder != null) {
+            try {
+                recorder.record(deltaTime);
+            } catch (IOException e) {
+                e.printStackTrace();
+                stopRecording();
+            }
+        }
+        return deltaTime;
+    }
+
+    /**
+     * Restarts the scene and records every frame from then on, until {@link #stopRecording()}
+     *
+     * @param scene scene to record, as in {@link #changeScene(int)}
+     * @param path  replay file to write
+     * @param seed  seed for anything random in the scene, see {@link #getSeed()}
+     */
+    public static void startRecording(int scene, Path path, long seed) throws IOException {
+        stopRecording();
+        player = null;
+        recorder = new InputRecorder(path, seed);
+        Window.seed = seed;
+        changeScene(scene);
+    }
+
+    public static void stopRecording() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        recorder = null;
+    }
+
+    /**
+     * Restarts the scene and plays a recording back into it. Every frame gets the recorded input and
+     * frame time, so the scene goes through the same states as when it was recorded.
+     *
+     * @param scene scene the recording was made in
+     * @param path  replay file written by {@link #startRecording(int, Path, long)}
+     */
+    public static void startReplay(int scene, Path path) throws IOException {
+        stopRecording();
+        player = InputPlayer.load(path);
+        seed = player.getSeed();
+        changeScene(scene);
+    }
+
+    public static boolean isReplaying() {
+        return player != null;
+    }
+
+    /**
+     * @return seed of the running recording or replay. Scenes seed their random generators with it in init.
+     */
+    public static long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Renders every viewport that changed, in the main context where the scenes keep their vertex arrays
+     */
+    private static void renderViewports() {
+        get().makeContextCurrent();
+
+        boolean rendered = false;
+        for (Window w : windows) {
+            for (Viewport viewport : w.viewports) {
+                if (viewport.render(w.width, w.height)) {
+                    w.presentNeeded = true;
+                    rendered = true;
+                }
+            }
+        }
+
+        if (rendered) {
+            // The other contexts can only wait on the render fences once the commands are sent off
+            glFlush();
+        }
+    }
+
+    /**
+     * Draws and swaps every window that has something new to show, and closes extra windows the user closed
+     *
+     * @return true if the main window was swapped
+     */
+    private static boolean presentWindows() {
+        boolean mainPresented = false;
+
+        for (int i = windows.size() - 1; i >= 0; i--) {
+            Window w = windows.get(i);
+            if (w != window && glfwWindowShouldClose(w.glfwWindow)) {
+                w.close();
+                continue;
+            }
+            if (!w.presentNeeded) {
+                continue;
+            }
+
+            w.makeContextCurrent();
+            w.present();
+            glfwSwapBuffers(w.glfwWindow); // swap the color buffers
+            w.presentNeeded = false;
+            mainPresented |= w == window;
+        }
+
+        get().makeContextCurrent();
+        for (Window w : windows) {
+            for (Viewport viewport : w.viewports) {
+                viewport.deleteFence();
+            }
+        }
+        return mainPresented;
+    }
+
+    /**
+     * Draws the viewport textures into their rectangles, this context has to be current
+     */
+    private void present() {
+        glViewport(0, 0, width, height);
+        glClearColor(clearColor.x, clearColor.y, clearColor.z, clearColor.w); // gives the window its color
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT); // clear the framebuffer
+
+        blitShader.use();
+        glBindVertexArray(blitVaoID);
+        glActiveTexture(GL_TEXTURE0);
+
+        for (Viewport viewport : viewports) {
+            if (viewport.getTextureID() == 0) {
+                continue;
+            }
+            glViewport(Math.round(viewport.getX() * width), Math.round(viewport.getY() * height),
+                    Math.max(1, Math.round(viewport.getWidth() * width)), Math.max(1, Math.round(viewport.getHeight() * height)));
+            viewport.waitForRender(); // the render may still be running in the main context
+            glBindTexture(GL_TEXTURE_2D, viewport.getTextureID());
+            glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+        }
+
+        glBindTexture(GL_TEXTURE_2D, 0);
+        glBindVertexArray(0);
+        blitShader.detach();
+    }
+
+    private void makeContextCurrent() {
+        glfwMakeContextCurrent(glfwWindow);
+        GL.setCapabilities(capabilities);
+    }
+
+    /**
+     * Adds a viewport on top of the ones already in this window
+     */
+    public void addViewport(Viewport viewport) {
+        viewports.add(viewport);
+        presentNeeded = true;
+    }
+
+    public void removeViewport(Viewport viewport) {
+        if (viewports.remove(viewport)) {
+            get().makeContextCurrent();
+            viewport.delete();
+            presentNeeded = true;
+        }
+    }
+
+    public List<Viewport> getViewports() {
+        return viewports;
+    }
+
+    /**
+     * Closes an extra window. The main window closes when the game stops.
+     */
+    public void close() {
+        if (this == window) {
+            glfwSetWindowShouldClose(glfwWindow, true);
+            return;
+        }
+
+        // Framebuffers belong to the main context
+        get().makeContextCurrent();
+        for (Viewport viewport : viewports) {
+            viewport.delete();
+        }
+        viewports.clear();
+
+        makeContextCurrent();
+        glDeleteVertexArrays(blitVaoID);
+
+        glfwFreeCallbacks(glfwWindow);
+        glfwDestroyWindow(glfwWindow);
+        windows.remove(this);
+
+        get().makeContextCurrent();
+    }
+
+    private static void closeExtraWindows() {
+        for (int i = windows.size() - 1; i >= 0; i--) {
+            if (windows.get(i) != window) {
+                windows.get(i).close();
+            }
+        }
+    }
+
+    /**
+     * Switches scenes. Every scene sets up its own extra windows and viewports in init,
+     * so the ones of the previous scene are closed first.
+     */
     public static void changeScene(int newScene) {
+        Window main = get();
+        closeExtraWindows();
+        for (Viewport viewport : new ArrayList<>(main.viewports)) {
+            if (viewport != mainViewport) {
+                main.removeViewport(viewport);
+            }
+        }
+
+        if (currentScene != null) {
+            currentScene.destroy();
+        }
+
         switch (newScene) {
             case 0:
                 currentScene = new LevelEditorScene();
@@ -190,19 +588,48 @@ public class Window {
                 assert false : "Unknown Scene: " + newScene;
                 break;
         }
+
+        mainViewport.setScene(currentScene, currentScene.getCamera());
     }
 
     /**
      * Fades the screen to black
      */
     public static void fadeToBlack() {
-        if (r > 0.01f && g > 0.01f && b > 0.01f) {
-            r = Math.max(r - 0.1f, 0);
-            g = Math.max(g - 0.1f, 0);
-            b = Math.max(r - 0.1f, 0);
+        Vector4f color = get().clearColor;
+        if (color.x > 0.01f && color.y > 0.01f && color.z > 0.01f) {
+            color.x = Math.max(color.x - 0.1f, 0);
+            color.y = Math.max(color.y - 0.1f, 0);
+            color.z = Math.max(color.x - 0.1f, 0);
+            mainViewport.markDirty();
+            get().presentNeeded = true;
         }
     }
 
+    public static AudioEngine getAudio() {
+        return audio;
+    }
+
+    public static RenderTargetPool getRenderTargets() {
+        return renderTargets;
+    }
+
+    public static Scene getCurrentScene() {
+        return currentScene;
+    }
+
+    public static Viewport getMainViewport() {
+        return mainViewport;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
     public double getFps() {
         return fps;
     }
@@ -0,0 +1,131 @@
+package renderer;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * An offscreen render target: a color texture plus an optional depth buffer.
+ * <p>
+ * The color texture is 8 bits per channel by default. Lighting and post processing render into
+ * floating point targets (GL_RGBA16F) so values above 1 survive until tone mapping.
+ * <p>
+ * The color texture is a shared object, so once something is rendered into it any window sharing the
+ * context can draw it. The framebuffer itself is not shared, it can only be bound in the context that created it.
+ */
+public class Framebuffer {
+
+    private int fboID, textureID, depthID;
+    private int width, height;
+    private final int internalFormat; // GL_RGBA8, GL_RGBA16F, ...
+    private final boolean depth;
+
+    public Framebuffer(int width, int height) {
+        this(width, height, GL_RGBA8, true);
+    }
+
+    /**
+     * @param internalFormat format of the color texture, like GL_RGBA8 or GL_RGBA16F
+     * @param depth          true to add a depth buffer
+     */
+    public Framebuffer(int width, int height, int internalFormat, boolean depth) {
+        this.width = width;
+        this.height = height;
+        this.internalFormat = internalFormat;
+        this.depth = depth;
+        create();
+    }
+
+    private void create() {
+        fboID = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, fboID);
+
+        // Color texture to render into
+        textureID = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, textureID);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        int type = isFloat() ? GL_FLOAT : GL_UNSIGNED_BYTE;
+        glTexImage2D(GL_TEXTURE_2D, 0, internalFormat, width, height, 0, GL_RGBA, type, (ByteBuffer) null);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, textureID, 0);
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        // Depth is never sampled, so a renderbuffer is enough
+        if (depth) {
+            depthID = glGenRenderbuffers();
+            glBindRenderbuffer(GL_RENDERBUFFER, depthID);
+            glRenderbufferStorage(GL_RENDERBUFFER, GL_DEPTH_COMPONENT24, width, height);
+            glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_RENDERBUFFER, depthID);
+            glBindRenderbuffer(GL_RENDERBUFFER, 0);
+        }
+
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE) {
+            assert false : "Error: Framebuffer is not complete";
+        }
+
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+    }
+
+    /**
+     * Recreates the attachments if the size changed, whatever was rendered is lost then
+     *
+     * @return true if the size changed
+     */
+    public boolean resize(int width, int height) {
+        if (this.width == width && this.height == height) {
+            return false;
+        }
+        delete();
+        this.width = width;
+        this.height = height;
+        create();
+        return true;
+    }
+
+    /**
+     * Renders into this framebuffer from now on, over its whole size
+     */
+    public void bind() {
+        glBindFramebuffer(GL_FRAMEBUFFER, fboID);
+        glViewport(0, 0, width, height);
+    }
+
+    public void unbind() {
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+    }
+
+    public int getTextureID() {
+        return textureID;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getInternalFormat() {
+        return internalFormat;
+    }
+
+    public boolean hasDepth() {
+        return depth;
+    }
+
+    private boolean isFloat() {
+        return internalFormat == GL_RGBA16F || internalFormat == GL_RGBA32F || internalFormat == GL_R11F_G11F_B10F;
+    }
+
+    public void delete() {
+        glDeleteFramebuffers(fboID);
+        glDeleteTextures(textureID);
+        if (depth) {
+            glDeleteRenderbuffers(depthID);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package renderer;
 
 import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
 import org.lwjgl.BufferUtils;
 
 import java.io.IOException;
@@ -150,4 +152,29 @@ public class Shader {
 
         glUniformMatrix4fv(varLocation, false, matBuffer);
     }
+
+    public void uploadVec2f(String varName, Vector2f vec){
+        glUniform2f(glGetUniformLocation(shaderProgramID, varName), vec.x, vec.y);
+    }
+
+    public void uploadVec3f(String varName, Vector3f vec){
+        glUniform3f(glGetUniformLocation(shaderProgramID, varName), vec.x, vec.y, vec.z);
+    }
+
+    public void uploadFloat(String varName, float value){
+        glUniform1f(glGetUniformLocation(shaderProgramID, varName), value);
+    }
+
+    public void uploadInt(String varName, int value){
+        glUniform1i(glGetUniformLocation(shaderProgramID, varName), value);
+    }
+
+    /**
+     * Tells a sampler which texture unit to read from
+     * @param varName name of the sampler
+     * @param slot texture unit, 0 for GL_TEXTURE0
+     */
+    public void uploadTexture(String varName, int slot){
+        uploadInt(varName, slot);
+    }
 }
@@ -0,0 +1,57 @@
+package renderer.font;
+
+/**
+ * A font that can be drawn at any size.
+ * <p>
+ * Glyphs are baked once into a signed distance field at the base size and scaled from there. Text is laid out
+ * once per string and size and kept in a {@link TextLayoutCache}. This class never touches OpenGL,
+ * the glyphs get to the GPU through a {@link FontAtlas}.
+ */
+public class Font {
+    public static final float DEFAULT_BASE_SIZE = 48.0f;
+    public static final int DEFAULT_ATLAS_SIZE = 1024;
+    public static final int DEFAULT_CELL_SIZE = 64; // base size plus the SDF padding on both sides
+    public static final int DEFAULT_LAYOUT_CAPACITY = 1024;
+
+    private final GlyphCache glyphCache;
+    private final TextLayoutCache layoutCache;
+
+    /**
+     * Loads a TrueType font with the default atlas settings: 256 glyphs baked at 48 pixels
+     *
+     * @param filePath string path to a .ttf file
+     */
+    public Font(String filePath) {
+        this(new TrueTypeRasterizer(filePath), DEFAULT_BASE_SIZE, DEFAULT_ATLAS_SIZE, DEFAULT_CELL_SIZE,
+                DEFAULT_LAYOUT_CAPACITY);
+    }
+
+    /**
+     * @param rasterizer     where the glyph shapes come from
+     * @param baseSize       pixel height to bake the glyphs at
+     * @param atlasSize      width and height of the atlas texture in pixels
+     * @param cellSize       width and height of a single glyph cell in pixels
+     * @param layoutCapacity number of text layouts to keep around
+     */
+    public Font(GlyphRasterizer rasterizer, float baseSize, int atlasSize, int cellSize, int layoutCapacity) {
+        this.glyphCache = new GlyphCache(rasterizer, baseSize, atlasSize, cellSize);
+        this.layoutCache = new TextLayoutCache(glyphCache, layoutCapacity);
+    }
+
+    /**
+     * @param text text to lay out, line breaks start a new line
+     * @param size pixel height of a line
+     * @return the layout of the text, cached for the next time the same text is drawn at this size
+     */
+    public TextLayout layout(String text, float size) {
+        return layoutCache.get(text, size);
+    }
+
+    public GlyphCache getGlyphCache() {
+        return glyphCache;
+    }
+
+    public TextLayoutCache getLayoutCache() {
+        return layoutCache;
+    }
+}
@@ -0,0 +1,91 @@
+package renderer.font;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL30.GL_R8;
+
+/**
+ * The GPU side of a {@link Font}: a single channel texture that mirrors the glyph cache.
+ * <p>
+ * Only the cells that change are uploaded. When a glyph is about to be evicted, the batch that is
+ * drawing with this atlas gets flushed first, so no quad ends up pointing at the wrong glyph.
+ */
+public class FontAtlas implements GlyphCache.AtlasListener {
+
+    private final Font font;
+    private final int textureID;
+
+    private TextBatch batch; // batch with quads waiting to be drawn using this atlas, if any
+
+    /**
+     * Creates the atlas texture and uploads the glyphs the font already has. Needs a current OpenGL context.
+     */
+    public FontAtlas(Font font) {
+        this.font = font;
+        GlyphCache cache = font.getGlyphCache();
+        int size = cache.getAtlasSize();
+
+        textureID = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, textureID);
+
+        // Linear filtering is what makes a distance field look sharp when scaled
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_R8, size, size, 0, GL_RED, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        cache.setListener(this);
+
+        // Glyphs that were baked before there was an atlas (e.g. by laying out text early) have to be re-baked to get their pixels
+        int[] codepoints = new int[cache.size()];
+        int i = 0;
+        for (Glyph glyph : cache.getGlyphs()) {
+            codepoints[i++] = glyph.codepoint;
+        }
+        cache.clear();
+        for (int codepoint : codepoints) {
+            cache.get(codepoint);
+        }
+    }
+
+    @Override
+    public void glyphEvicted(Glyph glyph) {
+        if (batch != null) {
+            batch.flush();
+        }
+    }
+
+    @Override
+    public void cellChanged(int x, int y, int size, ByteBuffer pixels) {
+        glBindTexture(GL_TEXTURE_2D, textureID);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1); // rows of single bytes are not 4 byte aligned
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, size, size, GL_RED, GL_UNSIGNED_BYTE, pixels);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+    }
+
+    void setBatch(TextBatch batch) {
+        this.batch = batch;
+    }
+
+    public void bind() {
+        glBindTexture(GL_TEXTURE_2D, textureID);
+    }
+
+    public void unbind() {
+        glBindTexture(GL_TEXTURE_2D, 0);
+    }
+
+    public Font getFont() {
+        return font;
+    }
+
+    public void delete() {
+        font.getGlyphCache().setListener(null);
+        glDeleteTextures(textureID);
+    }
+}
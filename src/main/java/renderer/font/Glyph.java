@@ -0,0 +1,35 @@
+package renderer.font;
+
+/**
+ * A single baked glyph inside the signed distance field atlas.
+ * <p>
+ * All metrics are in pixels at the base size the atlas was baked at ({@link GlyphCache#getBaseSize()}),
+ * so they can be scaled to any text size without re-baking the glyph.
+ */
+public class Glyph {
+    public final int codepoint;
+
+    // Metrics at base size
+    public float advance; // how far the pen moves after this glyph
+    public float xOffset, yOffset; // offset from the pen position to the top left of the bitmap (y goes down)
+    public int width, height; // size of the bitmap, including the SDF padding
+
+    // Location in the atlas
+    int slot = -1; // index of the atlas cell this glyph lives in, -1 when it is not in the atlas
+    public float u0, v0, u1, v1;
+
+    public Glyph(int codepoint) {
+        this.codepoint = codepoint;
+    }
+
+    /**
+     * @return true if this glyph has nothing to draw (e.g. a space), but still has an advance
+     */
+    public boolean isEmpty() {
+        return width == 0 || height == 0;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+}
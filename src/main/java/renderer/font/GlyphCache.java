@@ -0,0 +1,194 @@
+package renderer.font;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Bakes glyphs on demand into a fixed grid of cells in a signed distance field atlas.
+ * <p>
+ * Every glyph is baked once at the base size, the distance field lets it be scaled up and down when drawn.
+ * When all cells are taken, the least recently used glyph is evicted and its cell is reused.
+ * The cache itself never touches OpenGL, whoever owns the atlas texture gets told through the {@link AtlasListener}.
+ */
+public class GlyphCache {
+
+    /**
+     * Receives the changes of the atlas, so they can be uploaded to the GPU.
+     */
+    public interface AtlasListener {
+        /**
+         * Called before the cell of the glyph gets overwritten. Anything that still has to draw with it should do so now.
+         */
+        void glyphEvicted(Glyph glyph);
+
+        /**
+         * Called after a glyph is baked into a cell.
+         *
+         * @param x      left of the cell in the atlas, in pixels
+         * @param y      top of the cell in the atlas, in pixels
+         * @param size   width and height of the cell
+         * @param pixels the whole cell, row by row
+         */
+        void cellChanged(int x, int y, int size, ByteBuffer pixels);
+    }
+
+    private final GlyphRasterizer rasterizer;
+    private final float baseSize; // pixel height glyphs are baked at
+    private final int atlasSize, cellSize, columns, capacity;
+
+    // Access ordered, so iterating starts with the least recently used glyph
+    private final LinkedHashMap<Integer, Glyph> glyphs;
+    private final ByteBuffer cellPixels; // staging memory for a single cell, reused for every bake
+    private int nextFreeSlot = 0;
+    private int evictions = 0;
+
+    private AtlasListener listener;
+
+    /**
+     * @param rasterizer where the glyph shapes come from
+     * @param baseSize   pixel height to bake the glyphs at
+     * @param atlasSize  width and height of the atlas texture in pixels
+     * @param cellSize   width and height of a single glyph cell in pixels
+     */
+    public GlyphCache(GlyphRasterizer rasterizer, float baseSize, int atlasSize, int cellSize) {
+        if (cellSize <= 0 || cellSize > atlasSize) {
+            throw new IllegalArgumentException("Cell size " + cellSize + " does not fit in an atlas of " + atlasSize);
+        }
+        this.rasterizer = rasterizer;
+        this.baseSize = baseSize;
+        this.atlasSize = atlasSize;
+        this.cellSize = cellSize;
+        this.columns = atlasSize / cellSize;
+        this.capacity = columns * columns;
+        this.glyphs = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+        this.cellPixels = ByteBuffer.allocateDirect(cellSize * cellSize).order(ByteOrder.nativeOrder());
+    }
+
+    public void setListener(AtlasListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the glyph for the codepoint, baking it into the atlas if it is not in there yet.
+     * The glyph counts as used, so it is the last one to be evicted.
+     *
+     * @param codepoint unicode codepoint
+     * @return Glyph with its metrics and atlas coordinates
+     */
+    public Glyph get(int codepoint) {
+        Glyph glyph = glyphs.get(codepoint);
+        if (glyph != null) {
+            return glyph;
+        }
+
+        glyph = new Glyph(codepoint);
+        glyph.slot = takeSlot();
+        bake(glyph);
+        glyphs.put(codepoint, glyph);
+
+        return glyph;
+    }
+
+    /**
+     * @return true if the codepoint is currently baked in the atlas. Does not count as a use.
+     */
+    public boolean contains(int codepoint) {
+        return glyphs.containsKey(codepoint);
+    }
+
+    /**
+     * Finds a free cell, or evicts the least recently used glyph to free one up.
+     */
+    private int takeSlot() {
+        if (nextFreeSlot < capacity) {
+            return nextFreeSlot++;
+        }
+
+        Iterator<Glyph> eldest = glyphs.values().iterator();
+        Glyph evicted = eldest.next();
+        eldest.remove();
+        evictions++;
+
+        if (listener != null) {
+            listener.glyphEvicted(evicted);
+        }
+
+        int slot = evicted.slot;
+        evicted.slot = -1;
+        return slot;
+    }
+
+    private void bake(Glyph glyph) {
+        int x = (glyph.slot % columns) * cellSize;
+        int y = (glyph.slot / columns) * cellSize;
+
+        // Clear what the previous glyph left behind, so it can not bleed in when the atlas is filtered
+        cellPixels.clear();
+        for (int i = 0; i < cellPixels.capacity(); i++) {
+            cellPixels.put(i, (byte) 0);
+        }
+
+        rasterizer.rasterize(glyph, baseSize, cellPixels, cellSize, cellSize);
+        cellPixels.clear();
+
+        glyph.u0 = (float) x / atlasSize;
+        glyph.v0 = (float) y / atlasSize;
+        glyph.u1 = (float) (x + glyph.width) / atlasSize;
+        glyph.v1 = (float) (y + glyph.height) / atlasSize;
+
+        if (listener != null) {
+            listener.cellChanged(x, y, cellSize, cellPixels);
+        }
+    }
+
+    /**
+     * Drops every glyph, the atlas cells are free to be used again
+     */
+    public void clear() {
+        for (Glyph glyph : glyphs.values()) {
+            glyph.slot = -1;
+        }
+        glyphs.clear();
+        nextFreeSlot = 0;
+    }
+
+    /**
+     * @return every glyph currently in the atlas, least recently used first
+     */
+    public Iterable<Glyph> getGlyphs() {
+        return glyphs.values();
+    }
+
+    public GlyphRasterizer getRasterizer() {
+        return rasterizer;
+    }
+
+    public float getBaseSize() {
+        return baseSize;
+    }
+
+    public int getAtlasSize() {
+        return atlasSize;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return glyphs.size();
+    }
+
+    /**
+     * @return how many glyphs have been evicted since the cache was created
+     */
+    public int getEvictions() {
+        return evictions;
+    }
+}
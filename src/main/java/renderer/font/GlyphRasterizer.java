@@ -0,0 +1,42 @@
+package renderer.font;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source of glyph shapes for the {@link GlyphCache}.
+ * <p>
+ * The real implementation is {@link TrueTypeRasterizer} (stb_truetype), but the cache and the layout only talk
+ * to this interface so that they can run without a font file or an OpenGL context.
+ */
+public interface GlyphRasterizer {
+
+    /**
+     * @param pixelHeight height of a line in pixels
+     * @return distance from the baseline to the top of the highest glyph, in pixels
+     */
+    float getAscent(float pixelHeight);
+
+    /**
+     * @param pixelHeight height of a line in pixels
+     * @return distance from one baseline to the next, in pixels
+     */
+    float getLineHeight(float pixelHeight);
+
+    /**
+     * @return extra advance between two glyphs in pixels (usually negative), 0 if the pair is not kerned
+     */
+    float getKerning(int codepoint, int nextCodepoint, float pixelHeight);
+
+    /**
+     * Fills in the metrics of the glyph and writes its 8-bit signed distance field into target.
+     * The bitmap is written row by row starting at the current position of target, with stride bytes per row.
+     * Nothing is written if the glyph does not fit into maxSize x maxSize pixels, it will be drawn as empty.
+     *
+     * @param glyph       glyph to fill in, codepoint is already set
+     * @param pixelHeight height of a line in pixels to bake at
+     * @param target      buffer to write the distance field into
+     * @param stride      bytes per row in target
+     * @param maxSize     the largest width and height that fits in target
+     */
+    void rasterize(Glyph glyph, float pixelHeight, ByteBuffer target, int stride, int maxSize);
+}
@@ -0,0 +1,222 @@
+package renderer.font;
+
+import gefe.visual.Camera;
+import org.lwjgl.BufferUtils;
+import org.joml.Vector4f;
+import renderer.Shader;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Collects the glyph quads of many text layouts and draws them with as few draw calls as possible.
+ * <p>
+ * Quads are written into a single vertex array on the CPU. It only gets sent to the GPU when it is full,
+ * when text with another font is drawn, when the atlas has to evict a glyph, or at {@link #end()}.
+ * So thousands of labels in the same font cost a handful of draw calls.
+ * <p>
+ * Usage:
+ * <pre>
+ *     textBatch.begin(camera);
+ *     textBatch.draw(atlas, font.layout("Score: " + score, 24), 10, 700, color);
+ *     textBatch.end();
+ * </pre>
+ */
+public class TextBatch {
+    public static final int DEFAULT_MAX_QUADS = 2048;
+
+    // Vertex layout
+    private static final int POSITION_SIZE = 2;
+    private static final int UV_SIZE = 2;
+    private static final int COLOR_SIZE = 4;
+    private static final int VERTEX_SIZE = POSITION_SIZE + UV_SIZE + COLOR_SIZE;
+    private static final int VERTEX_SIZE_BYTES = VERTEX_SIZE * Float.BYTES;
+
+    private final int maxQuads;
+    private final float[] vertices;
+    private final FloatBuffer vertexBuffer; // staging memory for the upload, reused every flush
+    private int quadCount = 0;
+
+    private Shader shader;
+    private int vaoID, vboID, eboID;
+
+    private Camera camera;
+    private FontAtlas atlas; // atlas of the quads that are waiting to be drawn
+    private int drawCalls = 0; // since the last begin
+
+    public TextBatch() {
+        this(DEFAULT_MAX_QUADS);
+    }
+
+    public TextBatch(int maxQuads) {
+        this.maxQuads = maxQuads;
+        this.vertices = new float[maxQuads * 4 * VERTEX_SIZE];
+        this.vertexBuffer = BufferUtils.createFloatBuffer(vertices.length);
+    }
+
+    /**
+     * Compiles the text shader and creates the buffers on the GPU
+     */
+    public void init() {
+        shader = new Shader("assets/shaders/text.glsl");
+        shader.compile();
+        shader.link();
+
+        vaoID = glGenVertexArrays();
+        glBindVertexArray(vaoID);
+
+        // Room for every vertex, filled in every flush
+        vboID = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+        glBufferData(GL_ARRAY_BUFFER, (long) vertices.length * Float.BYTES, GL_DYNAMIC_DRAW);
+
+        // The indices never change, so upload them once
+        eboID = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, generateIndices(), GL_STATIC_DRAW);
+
+        glVertexAttribPointer(0, POSITION_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, 0);
+        glEnableVertexAttribArray(0);
+
+        glVertexAttribPointer(1, UV_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, POSITION_SIZE * Float.BYTES);
+        glEnableVertexAttribArray(1);
+
+        glVertexAttribPointer(2, COLOR_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, (POSITION_SIZE + UV_SIZE) * Float.BYTES);
+        glEnableVertexAttribArray(2);
+
+        glBindVertexArray(0);
+    }
+
+    /**
+     * In counter-clockwise order, the same two triangles for every quad
+     */
+    private IntBuffer generateIndices() {
+        IntBuffer elementBuffer = BufferUtils.createIntBuffer(maxQuads * 6);
+        for (int i = 0; i < maxQuads; i++) {
+            int offset = i * 4;
+            elementBuffer.put(offset + 2).put(offset + 1).put(offset); // top right triangle
+            elementBuffer.put(offset).put(offset + 1).put(offset + 3); // bottom left triangle
+        }
+        return elementBuffer.flip();
+    }
+
+    public void begin(Camera camera) {
+        this.camera = camera;
+        this.drawCalls = 0;
+    }
+
+    /**
+     * Adds the quads of a layout to the batch
+     *
+     * @param atlas  atlas of the font the layout was made with
+     * @param layout text to draw
+     * @param x      left of the text block in world space
+     * @param y      top of the text block in world space
+     * @param color  rgba color of the text
+     */
+    public void draw(FontAtlas atlas, TextLayout layout, float x, float y, Vector4f color) {
+        if (this.atlas != atlas) {
+            flush();
+            this.atlas = atlas;
+            atlas.setBatch(this);
+        }
+
+        GlyphCache cache = atlas.getFont().getGlyphCache();
+        float scale = layout.getScale();
+
+        for (int i = 0; i < layout.getGlyphCount(); i++) {
+            if (quadCount == maxQuads) {
+                flush();
+            }
+
+            // Touching the glyph keeps it in the atlas, or bakes it back in if it was evicted
+            Glyph glyph = cache.get(layout.getCodepoint(i));
+
+            float left = x + layout.getX(i) + glyph.xOffset * scale;
+            float top = y + layout.getY(i) - glyph.yOffset * scale; // glyph offsets go down, world space goes up
+            float right = left + glyph.width * scale;
+            float bottom = top - glyph.height * scale;
+
+            int offset = quadCount * 4 * VERTEX_SIZE;
+            offset = putVertex(offset, right, bottom, glyph.u1, glyph.v1, color); // Bottom right
+            offset = putVertex(offset, left, top, glyph.u0, glyph.v0, color); // Top left
+            offset = putVertex(offset, right, top, glyph.u1, glyph.v0, color); // Top right
+            putVertex(offset, left, bottom, glyph.u0, glyph.v1, color); // Bottom left
+
+            quadCount++;
+        }
+    }
+
+    private int putVertex(int offset, float x, float y, float u, float v, Vector4f color) {
+        vertices[offset] = x;
+        vertices[offset + 1] = y;
+        vertices[offset + 2] = u;
+        vertices[offset + 3] = v;
+        vertices[offset + 4] = color.x;
+        vertices[offset + 5] = color.y;
+        vertices[offset + 6] = color.z;
+        vertices[offset + 7] = color.w;
+        return offset + VERTEX_SIZE;
+    }
+
+    /**
+     * Draws every quad collected so far in a single draw call
+     */
+    public void flush() {
+        if (quadCount == 0) {
+            return;
+        }
+
+        vertexBuffer.clear();
+        vertexBuffer.put(vertices, 0, quadCount * 4 * VERTEX_SIZE).flip();
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+        glBufferSubData(GL_ARRAY_BUFFER, 0, vertexBuffer);
+
+        shader.use();
+        shader.uploadMatrix4f("uProjectionMatrix", camera.getProjectionMatrix());
+        shader.uploadMatrix4f("uViewMatrix", camera.getViewMatrix());
+
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+        glActiveTexture(GL_TEXTURE0);
+        atlas.bind();
+
+        glBindVertexArray(vaoID);
+        glDrawElements(GL_TRIANGLES, quadCount * 6, GL_UNSIGNED_INT, 0);
+        glBindVertexArray(0);
+
+        atlas.unbind();
+        shader.detach();
+
+        quadCount = 0;
+        drawCalls++;
+    }
+
+    /**
+     * Draws whatever is left in the batch
+     */
+    public void end() {
+        flush();
+        if (atlas != null) {
+            atlas.setBatch(null);
+            atlas = null;
+        }
+    }
+
+    /**
+     * @return draw calls since the last {@link #begin(Camera)}
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public void delete() {
+        glDeleteBuffers(vboID);
+        glDeleteBuffers(eboID);
+        glDeleteVertexArrays(vaoID);
+    }
+}
@@ -0,0 +1,131 @@
+package renderer.font;
+
+/**
+ * The positions of every glyph in a string at a given size, computed once and drawn as often as needed.
+ * <p>
+ * Positions are pen positions on the baseline, in pixels, relative to the top left of the text block.
+ * The y-axis goes up, like the world space of the {@link gefe.visual.Camera}, so every line lies below the one before.
+ * Only the codepoints are stored, not the glyphs themselves, so a layout stays valid when its glyphs get evicted from the atlas.
+ */
+public class TextLayout {
+
+    private final String text;
+    private final float size;
+    private final float scale; // from the base size of the atlas to the size of this layout
+
+    private final int[] codepoints; // only the glyphs that have to be drawn
+    private final float[] positions; // x, y pairs, one for every codepoint
+    private final int glyphCount;
+    private final float width, height;
+
+    private TextLayout(String text, float size, float scale, int[] codepoints, float[] positions,
+                       int glyphCount, float width, float height) {
+        this.text = text;
+        this.size = size;
+        this.scale = scale;
+        this.codepoints = codepoints;
+        this.positions = positions;
+        this.glyphCount = glyphCount;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Lays out the text, line breaks start a new line.
+     *
+     * @param text  the text to lay out
+     * @param size  pixel height of a line
+     * @param cache glyph cache to get the metrics from, glyphs that are not baked yet will be
+     * @return TextLayout
+     */
+    public static TextLayout build(String text, float size, GlyphCache cache) {
+        GlyphRasterizer rasterizer = cache.getRasterizer();
+        float scale = size / cache.getBaseSize();
+        float ascent = rasterizer.getAscent(size);
+        float lineHeight = rasterizer.getLineHeight(size);
+
+        int length = text.codePointCount(0, text.length());
+        int[] codepoints = new int[length];
+        float[] positions = new float[length * 2];
+        int count = 0;
+
+        float penX = 0, baseline = -ascent;
+        float width = 0;
+        int lines = 1;
+        int previous = -1;
+
+        for (int i = 0; i < text.length(); ) {
+            int codepoint = text.codePointAt(i);
+            i += Character.charCount(codepoint);
+
+            if (codepoint == '\n') {
+                width = Math.max(width, penX);
+                penX = 0;
+                baseline -= lineHeight;
+                lines++;
+                previous = -1;
+                continue;
+            }
+
+            if (previous != -1) {
+                penX += rasterizer.getKerning(previous, codepoint, size);
+            }
+
+            Glyph glyph = cache.get(codepoint);
+            if (!glyph.isEmpty()) {
+                codepoints[count] = codepoint;
+                positions[count * 2] = penX;
+                positions[count * 2 + 1] = baseline;
+                count++;
+            }
+
+            penX += glyph.advance * scale;
+            previous = codepoint;
+        }
+        width = Math.max(width, penX);
+
+        return new TextLayout(text, size, scale, codepoints, positions, count, width, lines * lineHeight);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public float getSize() {
+        return size;
+    }
+
+    /**
+     * @return factor to multiply the base size glyph metrics with
+     */
+    public float getScale() {
+        return scale;
+    }
+
+    /**
+     * @return the number of glyphs that have to be drawn, whitespace not included
+     */
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    public int getCodepoint(int index) {
+        return codepoints[index];
+    }
+
+    public float getX(int index) {
+        return positions[index * 2];
+    }
+
+    public float getY(int index) {
+        return positions[index * 2 + 1];
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,86 @@
+package renderer.font;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the layouts of recently drawn strings, so labels that are drawn every frame are only laid out once.
+ * Layouts are cached per string and size, the least recently used one is dropped when the cache is full.
+ */
+public class TextLayoutCache {
+
+    private final GlyphCache glyphCache;
+    private final LinkedHashMap<Key, TextLayout> layouts;
+    private final Key lookup = new Key(); // reused for lookups, so a cache hit does not allocate
+
+    private int hits, misses;
+
+    public TextLayoutCache(GlyphCache glyphCache, int capacity) {
+        this.glyphCache = glyphCache;
+        this.layouts = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TextLayout> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param text text to lay out
+     * @param size pixel height of a line
+     * @return the cached layout, or a new one if this string has not been laid out at this size recently
+     */
+    public TextLayout get(String text, float size) {
+        lookup.text = text;
+        lookup.size = size;
+
+        TextLayout layout = layouts.get(lookup);
+        if (layout != null) {
+            hits++;
+            return layout;
+        }
+
+        misses++;
+        layout = TextLayout.build(text, size, glyphCache);
+        Key key = new Key();
+        key.text = text;
+        key.size = size;
+        layouts.put(key, layout);
+
+        return layout;
+    }
+
+    public void clear() {
+        layouts.clear();
+    }
+
+    public int size() {
+        return layouts.size();
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    private static final class Key {
+        private String text;
+        private float size;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Float.compare(key.size, size) == 0 && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * text.hashCode() + Float.floatToIntBits(size);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package renderer.font;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.stb.STBTTFontinfo;
+import org.lwjgl.system.MemoryStack;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.lwjgl.stb.STBTruetype.*;
+
+/**
+ * Rasterizes glyphs from a TrueType font file into signed distance fields with stb_truetype.
+ * <p>
+ * In the distance field the outline of the glyph has the value {@link #ON_EDGE}, every pixel further
+ * inside or outside of it goes up or down by {@link #PIXEL_DIST_SCALE}.
+ */
+public class TrueTypeRasterizer implements GlyphRasterizer {
+
+    public static final int PADDING = 6; // pixels around the glyph so the field can fade out
+    public static final int ON_EDGE = 128;
+    public static final float PIXEL_DIST_SCALE = ON_EDGE / (float) PADDING;
+
+    private final String filePath;
+    private final STBTTFontinfo fontInfo;
+    private ByteBuffer fontData; // stb_truetype keeps pointing into this, so it has to stay alive with the font info
+
+    // Vertical metrics in font units
+    private int ascent, descent, lineGap;
+
+    /**
+     * Handles loading the font file
+     *
+     * @param filePath string path to a .ttf file
+     */
+    public TrueTypeRasterizer(String filePath) {
+        this.filePath = filePath;
+        this.fontInfo = STBTTFontinfo.create();
+
+        try {
+            byte[] bytes = Files.readAllBytes(Paths.get(filePath));
+            fontData = BufferUtils.createByteBuffer(bytes.length);
+            fontData.put(bytes).flip();
+        } catch (IOException e) {
+            e.printStackTrace();
+            assert false : "Error: Could not open font file: " + filePath;
+            return;
+        }
+
+        if (!stbtt_InitFont(fontInfo, fontData)) {
+            assert false : "Error: Could not read font: " + filePath;
+            return;
+        }
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer pAscent = stack.mallocInt(1);
+            IntBuffer pDescent = stack.mallocInt(1);
+            IntBuffer pLineGap = stack.mallocInt(1);
+            stbtt_GetFontVMetrics(fontInfo, pAscent, pDescent, pLineGap);
+            ascent = pAscent.get(0);
+            descent = pDescent.get(0);
+            lineGap = pLineGap.get(0);
+        }
+    }
+
+    private float scale(float pixelHeight) {
+        return stbtt_ScaleForPixelHeight(fontInfo, pixelHeight);
+    }
+
+    @Override
+    public float getAscent(float pixelHeight) {
+        return ascent * scale(pixelHeight);
+    }
+
+    @Override
+    public float getLineHeight(float pixelHeight) {
+        return (ascent - descent + lineGap) * scale(pixelHeight);
+    }
+
+    @Override
+    public float getKerning(int codepoint, int nextCodepoint, float pixelHeight) {
+        return stbtt_GetCodepointKernAdvance(fontInfo, codepoint, nextCodepoint) * scale(pixelHeight);
+    }
+
+    @Override
+    public void rasterize(Glyph glyph, float pixelHeight, ByteBuffer target, int stride, int maxSize) {
+        float scale = scale(pixelHeight);
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer advance = stack.mallocInt(1);
+            IntBuffer leftSideBearing = stack.mallocInt(1);
+            stbtt_GetCodepointHMetrics(fontInfo, glyph.codepoint, advance, leftSideBearing);
+            glyph.advance = advance.get(0) * scale;
+
+            IntBuffer width = stack.mallocInt(1);
+            IntBuffer height = stack.mallocInt(1);
+            IntBuffer xOff = stack.mallocInt(1);
+            IntBuffer yOff = stack.mallocInt(1);
+            ByteBuffer sdf = stbtt_GetCodepointSDF(fontInfo, scale, glyph.codepoint, PADDING, (byte) ON_EDGE,
+                    PIXEL_DIST_SCALE, width, height, xOff, yOff);
+
+            // Whitespace has no bitmap
+            if (sdf == null) {
+                glyph.width = 0;
+                glyph.height = 0;
+                return;
+            }
+
+            int w = width.get(0);
+            int h = height.get(0);
+            if (w > maxSize || h > maxSize) {
+                System.err.println("WARNING: Glyph " + glyph.codepoint + " of " + filePath
+                        + " is " + w + "x" + h + " and does not fit in a " + maxSize + " cell");
+                w = 0;
+                h = 0;
+            }
+
+            glyph.width = w;
+            glyph.height = h;
+            glyph.xOffset = xOff.get(0);
+            glyph.yOffset = yOff.get(0);
+
+            // Copy row by row into the cell
+            int start = target.position();
+            for (int row = 0; row < h; row++) {
+                for (int col = 0; col < w; col++) {
+                    target.put(start + row * stride + col, sdf.get(row * w + col));
+                }
+            }
+
+            stbtt_FreeSDF(sdf);
+        }
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+}
@@ -0,0 +1,59 @@
+package renderer.mesh;
+
+/**
+ * Keyframes of an animation, as flat float arrays per animated node.
+ * Times are in ticks, divide by {@link #getTicksPerSecond()} for seconds.
+ * <p>
+ * Only node keyframe channels are cooked (position, rotation and scaling per node). Mesh and morph channels are
+ * skipped by the importer, and sprite animations are not cooked at all, those stay in the sprite sheets and their
+ * {@link gefe.animation.AnimationClip}s.
+ */
+public class CookedAnimation {
+
+    /**
+     * The keys of a single node
+     */
+    public static class Channel {
+        public final String nodeName;
+        public final float[] positionKeys; // time, x, y, z
+        public final float[] rotationKeys; // time, x, y, z, w
+        public final float[] scalingKeys; // time, x, y, z
+
+        public Channel(String nodeName, float[] positionKeys, float[] rotationKeys, float[] scalingKeys) {
+            this.nodeName = nodeName;
+            this.positionKeys = positionKeys;
+            this.rotationKeys = rotationKeys;
+            this.scalingKeys = scalingKeys;
+        }
+    }
+
+    private final String name;
+    private final float duration, ticksPerSecond;
+    private final Channel[] channels;
+
+    public CookedAnimation(String name, float duration, float ticksPerSecond, Channel[] channels) {
+        this.name = name;
+        this.duration = duration;
+        this.ticksPerSecond = ticksPerSecond;
+        this.channels = channels;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return length in ticks
+     */
+    public float getDuration() {
+        return duration;
+    }
+
+    public float getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public Channel[] getChannels() {
+        return channels;
+    }
+}
@@ -0,0 +1,178 @@
+package renderer.mesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A cooked asset file, see {@link CookedFormat}.
+ * <p>
+ * The file is memory mapped and the vertex and index data are views straight into the mapping,
+ * so loading does not copy or convert anything. They can be handed to OpenGL as they are, see {@link CookedMesh}.
+ */
+public class CookedAsset {
+
+    private final int indexSize; // 2 or 4 bytes
+    private final int vertexCount, indexCount;
+    private final int[] submeshes; // base vertex, vertex count, first index, index count, material per submesh
+    private final ByteBuffer vertices, indices;
+    private final CookedAnimation[] animations;
+
+    private CookedAsset(int indexSize, int vertexCount, int indexCount, int[] submeshes,
+                        ByteBuffer vertices, ByteBuffer indices, CookedAnimation[] animations) {
+        this.indexSize = indexSize;
+        this.vertexCount = vertexCount;
+        this.indexCount = indexCount;
+        this.submeshes = submeshes;
+        this.vertices = vertices;
+        this.indices = indices;
+        this.animations = animations;
+    }
+
+    /**
+     * Maps the cooked file into memory
+     *
+     * @param filePath string path to the cooked file
+     * @return CookedAsset
+     */
+    public static CookedAsset load(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param data the whole cooked file
+     * @return CookedAsset with views into data
+     */
+    public static CookedAsset read(ByteBuffer data) throws IOException {
+        ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt() != CookedFormat.MAGIC) {
+            throw new IOException("Not a cooked asset");
+        }
+        int version = buffer.getInt();
+        if (version != CookedFormat.VERSION) {
+            throw new IOException("Cooked asset version " + version + " is not supported, recook it");
+        }
+
+        int indexSize = buffer.getInt();
+        int submeshCount = buffer.getInt();
+        int animationCount = buffer.getInt();
+        int vertexCount = buffer.getInt();
+        int indexCount = buffer.getInt();
+        int vertexOffset = (int) buffer.getLong();
+        int indexOffset = (int) buffer.getLong();
+        int animationOffset = (int) buffer.getLong();
+
+        int[] submeshes = new int[submeshCount * 5];
+        for (int i = 0; i < submeshes.length; i++) {
+            submeshes[i] = buffer.getInt();
+        }
+
+        ByteBuffer vertices = slice(buffer, vertexOffset, vertexCount * CookedFormat.VERTEX_SIZE_BYTES);
+        ByteBuffer indices = slice(buffer, indexOffset, indexCount * indexSize);
+
+        buffer.position(animationOffset);
+        CookedAnimation[] animations = new CookedAnimation[animationCount];
+        for (int i = 0; i < animationCount; i++) {
+            animations[i] = readAnimation(buffer);
+        }
+
+        return new CookedAsset(indexSize, vertexCount, indexCount, submeshes, vertices, indices, animations);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset).limit(offset + length);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static CookedAnimation readAnimation(ByteBuffer buffer) {
+        String name = readString(buffer);
+        float duration = buffer.getFloat();
+        float ticksPerSecond = buffer.getFloat();
+
+        CookedAnimation.Channel[] channels = new CookedAnimation.Channel[buffer.getInt()];
+        for (int i = 0; i < channels.length; i++) {
+            String nodeName = readString(buffer);
+            float[] positionKeys = new float[buffer.getInt() * CookedFormat.POSITION_KEY_SIZE];
+            float[] rotationKeys = new float[buffer.getInt() * CookedFormat.ROTATION_KEY_SIZE];
+            float[] scalingKeys = new float[buffer.getInt() * CookedFormat.SCALING_KEY_SIZE];
+            buffer.asFloatBuffer().get(positionKeys);
+            buffer.position(buffer.position() + positionKeys.length * Float.BYTES);
+            buffer.asFloatBuffer().get(rotationKeys);
+            buffer.position(buffer.position() + rotationKeys.length * Float.BYTES);
+            buffer.asFloatBuffer().get(scalingKeys);
+            buffer.position(buffer.position() + scalingKeys.length * Float.BYTES);
+            channels[i] = new CookedAnimation.Channel(nodeName, positionKeys, rotationKeys, scalingKeys);
+        }
+
+        return new CookedAnimation(name, duration, ticksPerSecond, channels);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 2 for unsigned short indices, 4 for unsigned int indices
+     */
+    public int getIndexSize() {
+        return indexSize;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public int getSubmeshCount() {
+        return submeshes.length / 5;
+    }
+
+    public int getBaseVertex(int submesh) {
+        return submeshes[submesh * 5];
+    }
+
+    public int getSubmeshVertexCount(int submesh) {
+        return submeshes[submesh * 5 + 1];
+    }
+
+    public int getFirstIndex(int submesh) {
+        return submeshes[submesh * 5 + 2];
+    }
+
+    public int getSubmeshIndexCount(int submesh) {
+        return submeshes[submesh * 5 + 3];
+    }
+
+    public int getMaterialIndex(int submesh) {
+        return submeshes[submesh * 5 + 4];
+    }
+
+    /**
+     * @return interleaved vertex data, see {@link CookedFormat#FLOATS_PER_VERTEX}
+     */
+    public ByteBuffer getVertices() {
+        return vertices.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public ByteBuffer getIndices() {
+        return indices.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public CookedAnimation[] getAnimations() {
+        return animations;
+    }
+}
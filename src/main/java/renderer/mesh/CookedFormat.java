@@ -0,0 +1,41 @@
+package renderer.mesh;
+
+/**
+ * Layout of a cooked asset file. Everything is little endian, so the file can be mapped and handed to OpenGL as is.
+ * <p>
+ * <pre>
+ * Header      magic, version, index size, submesh count, animation count, vertex count, index count,
+ *             vertex data offset, index data offset, animation data offset
+ * Submeshes   base vertex, vertex count, first index, index count, material index (5 ints each)
+ * Vertices    interleaved floats, see {@link #FLOATS_PER_VERTEX}
+ * Indices     unsigned 16 or 32 bit, relative to the base vertex of their submesh
+ * Animations  name, duration, ticks per second, channels with their position, rotation and scaling keys
+ * </pre>
+ * The vertex and index data start at a 4 byte boundary.
+ */
+public final class CookedFormat {
+    public static final int MAGIC = 0x43443257; // "W2DC"
+    public static final int VERSION = 1;
+
+    // Vertex layout, the same attribute locations as the default shader
+    public static final int POSITION_SIZE = 3;
+    public static final int COLOR_SIZE = 4;
+    public static final int UV_SIZE = 2;
+    public static final int FLOATS_PER_VERTEX = POSITION_SIZE + COLOR_SIZE + UV_SIZE;
+    public static final int VERTEX_SIZE_BYTES = FLOATS_PER_VERTEX * Float.BYTES;
+
+    public static final int HEADER_SIZE_BYTES = 7 * Integer.BYTES + 3 * Long.BYTES;
+    public static final int SUBMESH_SIZE_BYTES = 5 * Integer.BYTES;
+
+    // Floats per key in the animation data: time followed by the value
+    public static final int POSITION_KEY_SIZE = 4;
+    public static final int ROTATION_KEY_SIZE = 5;
+    public static final int SCALING_KEY_SIZE = 4;
+
+    private CookedFormat() {
+    }
+
+    public static int align4(long offset) {
+        return (int) ((offset + 3) & ~3L);
+    }
+}
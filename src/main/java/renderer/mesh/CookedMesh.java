@@ -0,0 +1,82 @@
+package renderer.mesh;
+
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
+import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
+
+/**
+ * A cooked asset uploaded to the GPU. The mapped file is handed to OpenGL directly, there is no conversion on load.
+ * <p>
+ * Every submesh has its own indices starting at 0, which is what keeps them small enough for 16 bits.
+ * They are drawn with their base vertex added on the GPU.
+ */
+public class CookedMesh {
+
+    private final CookedAsset asset;
+    private final int indexType; // GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+    private int vaoID, vboID, eboID;
+
+    public CookedMesh(CookedAsset asset) {
+        this.asset = asset;
+        this.indexType = asset.getIndexSize() == 2 ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT;
+
+        vaoID = glGenVertexArrays();
+        glBindVertexArray(vaoID);
+
+        // Upload the vertex and index data straight from the mapped file
+        vboID = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+        glBufferData(GL_ARRAY_BUFFER, asset.getVertices(), GL_STATIC_DRAW);
+
+        eboID = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, asset.getIndices(), GL_STATIC_DRAW);
+
+        // Add the vertex attribute pointers
+        int stride = CookedFormat.VERTEX_SIZE_BYTES;
+        glVertexAttribPointer(0, CookedFormat.POSITION_SIZE, GL_FLOAT, false, stride, 0);
+        glEnableVertexAttribArray(0);
+
+        glVertexAttribPointer(1, CookedFormat.COLOR_SIZE, GL_FLOAT, false, stride,
+                CookedFormat.POSITION_SIZE * Float.BYTES);
+        glEnableVertexAttribArray(1);
+
+        glVertexAttribPointer(2, CookedFormat.UV_SIZE, GL_FLOAT, false, stride,
+                (CookedFormat.POSITION_SIZE + CookedFormat.COLOR_SIZE) * Float.BYTES);
+        glEnableVertexAttribArray(2);
+
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Draws every submesh, the shader has to be in use already
+     */
+    public void draw() {
+        glBindVertexArray(vaoID);
+        for (int i = 0; i < asset.getSubmeshCount(); i++) {
+            drawSubmesh(i);
+        }
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Draws a single submesh, the vertex array has to be bound already
+     */
+    private void drawSubmesh(int submesh) {
+        long indexOffset = (long) asset.getFirstIndex(submesh) * asset.getIndexSize();
+        glDrawElementsBaseVertex(GL_TRIANGLES, asset.getSubmeshIndexCount(submesh), indexType,
+                indexOffset, asset.getBaseVertex(submesh));
+    }
+
+    public CookedAsset getAsset() {
+        return asset;
+    }
+
+    public void delete() {
+        glDeleteBuffers(vboID);
+        glDeleteBuffers(eboID);
+        glDeleteVertexArrays(vaoID);
+    }
+}
@@ -0,0 +1,109 @@
+package renderer.pipeline;
+
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL33C.GL_TIME_ELAPSED;
+import static org.lwjgl.opengl.GL33C.glGetQueryObjecti64;
+
+/**
+ * Measures how long the GPU spends on each pass, with timer queries.
+ * <p>
+ * The GPU runs a few frames behind, so a query is only read back frames after it was issued. Every pass has a small
+ * ring of queries for that, and reading never waits unless the ring is full. Timings are smoothed over
+ * about a second of frames to be readable on screen.
+ */
+public class GpuTimer {
+    private static final int LATENCY = 4; // queries in flight per pass
+    private static final double SMOOTHING = 0.05;
+
+    private final int passCount;
+    private int[] queries; // pass * LATENCY + slot, created with the first query
+    private final boolean[] pending;
+    private final int[] nextSlot;
+    private final double[] millis;
+    private int activePass = -1;
+
+    /**
+     * @param passCount number of passes to time, passes are numbered from 0
+     */
+    public GpuTimer(int passCount) {
+        this.passCount = passCount;
+        this.pending = new boolean[passCount * LATENCY];
+        this.nextSlot = new int[passCount];
+        this.millis = new double[passCount];
+    }
+
+    /**
+     * Starts timing a pass, only one pass can be timed at once
+     */
+    public void begin(int pass) {
+        assert activePass < 0 : "Error: GpuTimer pass " + activePass + " is still running";
+        if (queries == null) {
+            queries = new int[passCount * LATENCY];
+            glGenQueries(queries);
+        }
+
+        collect(pass);
+        int query = pass * LATENCY + nextSlot[pass];
+        if (pending[query]) {
+            // The GPU is more than LATENCY frames behind, wait for the oldest result
+            read(pass, query);
+        }
+        glBeginQuery(GL_TIME_ELAPSED, queries[query]);
+        activePass = pass;
+    }
+
+    public void end() {
+        glEndQuery(GL_TIME_ELAPSED);
+        pending[activePass * LATENCY + nextSlot[activePass]] = true;
+        nextSlot[activePass] = (nextSlot[activePass] + 1) % LATENCY;
+        activePass = -1;
+    }
+
+    /**
+     * Reads the results of a pass that are ready, oldest first
+     */
+    private void collect(int pass) {
+        for (int i = 0; i < LATENCY; i++) {
+            int query = pass * LATENCY + (nextSlot[pass] + i) % LATENCY;
+            if (!pending[query]) {
+                continue;
+            }
+            if (glGetQueryObjecti(queries[query], GL_QUERY_RESULT_AVAILABLE) == GL_FALSE) {
+                return;
+            }
+            read(pass, query);
+        }
+    }
+
+    private void read(int pass, int query) {
+        long nanos = glGetQueryObjecti64(queries[query], GL_QUERY_RESULT);
+        pending[query] = false;
+        double sample = nanos / 1_000_000.0;
+        millis[pass] = millis[pass] == 0 ? sample : millis[pass] + (sample - millis[pass]) * SMOOTHING;
+    }
+
+    /**
+     * @return smoothed GPU time of the pass in milliseconds, 0 until the first result came back
+     */
+    public double getMillis(int pass) {
+        return millis[pass];
+    }
+
+    /**
+     * Forgets the timing of a pass, for passes that were turned off. Results still in flight are dropped,
+     * so they do not end up in the timing once the pass is turned back on.
+     */
+    public void reset(int pass) {
+        millis[pass] = 0;
+        for (int slot = 0; slot < LATENCY; slot++) {
+            pending[pass * LATENCY + slot] = false;
+        }
+    }
+
+    public void delete() {
+        if (queries != null) {
+            glDeleteQueries(queries);
+            queries = null;
+        }
+    }
+}
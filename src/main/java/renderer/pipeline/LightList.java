@@ -0,0 +1,161 @@
+package renderer.pipeline;
+
+import gefe.replay.SnapshotBuffer;
+import gefe.replay.Snapshottable;
+
+import java.util.Arrays;
+
+/**
+ * The point lights of a scene, as flat arrays so thousands of them can be culled and uploaded in one loop.
+ * <p>
+ * A light is an index that stays the same until it is removed. Lights light up a circle in world units with
+ * a smooth falloff towards the radius, see {@link RenderPipeline}.
+ */
+public class LightList implements Snapshottable {
+    public static final int FLOATS_PER_LIGHT = 7; // x, y, radius, r, g, b, intensity
+
+    private float[] data = new float[64 * FLOATS_PER_LIGHT];
+    private boolean[] alive = new boolean[64];
+    private int[] freeList = new int[64];
+    private int freeCount = 0;
+    private int count = 0; // highest light index in use + 1
+    private int liveCount = 0;
+    private long version = 0;
+
+    /**
+     * @return the index of the new light
+     */
+    public int add(float x, float y, float radius, float r, float g, float b, float intensity) {
+        int light;
+        if (freeCount > 0) {
+            light = freeList[--freeCount];
+        } else {
+            if (count == alive.length) {
+                int newCapacity = alive.length * 2;
+                data = Arrays.copyOf(data, newCapacity * FLOATS_PER_LIGHT);
+                alive = Arrays.copyOf(alive, newCapacity);
+                freeList = Arrays.copyOf(freeList, newCapacity);
+            }
+            light = count++;
+        }
+
+        alive[light] = true;
+        liveCount++;
+        set(light, x, y, radius, r, g, b, intensity);
+        return light;
+    }
+
+    public void set(int light, float x, float y, float radius, float r, float g, float b, float intensity) {
+        int i = light * FLOATS_PER_LIGHT;
+        data[i] = x;
+        data[i + 1] = y;
+        data[i + 2] = radius;
+        data[i + 3] = r;
+        data[i + 4] = g;
+        data[i + 5] = b;
+        data[i + 6] = intensity;
+        version++;
+    }
+
+    public void setPosition(int light, float x, float y) {
+        data[light * FLOATS_PER_LIGHT] = x;
+        data[light * FLOATS_PER_LIGHT + 1] = y;
+        version++;
+    }
+
+    public void setIntensity(int light, float intensity) {
+        data[light * FLOATS_PER_LIGHT + 6] = intensity;
+        version++;
+    }
+
+    public void remove(int light) {
+        if (!alive[light]) {
+            return;
+        }
+        alive[light] = false;
+        freeList[freeCount++] = light;
+        liveCount--;
+        version++;
+    }
+
+    public void clear() {
+        Arrays.fill(alive, 0, count, false);
+        count = 0;
+        freeCount = 0;
+        liveCount = 0;
+        version++;
+    }
+
+    @Override
+    public void save(SnapshotBuffer out) {
+        out.putInt(count);
+        out.putInt(liveCount);
+        out.putInt(freeCount);
+        out.putInts(freeList, freeCount);
+        out.putBooleans(alive, count);
+        out.putFloats(data, count * FLOATS_PER_LIGHT);
+    }
+
+    @Override
+    public void load(SnapshotBuffer in) {
+        int savedCount = in.getInt();
+        if (savedCount > alive.length) {
+            data = Arrays.copyOf(data, savedCount * FLOATS_PER_LIGHT);
+            alive = Arrays.copyOf(alive, savedCount);
+            freeList = Arrays.copyOf(freeList, savedCount);
+        }
+        // Lights added after the snapshot are gone
+        Arrays.fill(alive, Math.min(savedCount, count), count, false);
+        count = savedCount;
+        liveCount = in.getInt();
+        freeCount = in.getInt();
+        in.getInts(freeList, freeCount);
+        in.getBooleans(alive, count);
+        in.getFloats(data, count * FLOATS_PER_LIGHT);
+        version++;
+    }
+
+    /**
+     * Copies the lights that reach into the rectangle, packed one after another
+     *
+     * @param out  array to copy into, it has to fit {@link #size()} lights
+     * @param minX left of the rectangle in world units
+     * @param minY bottom of the rectangle
+     * @param maxX right of the rectangle
+     * @param maxY top of the rectangle
+     * @return number of lights copied
+     */
+    public int cull(float[] out, float minX, float minY, float maxX, float maxY) {
+        int visible = 0;
+        for (int light = 0; light < count; light++) {
+            int i = light * FLOATS_PER_LIGHT;
+            float radius = data[i + 2];
+            if (!alive[light]
+                    || data[i] + radius < minX || data[i] - radius > maxX
+                    || data[i + 1] + radius < minY || data[i + 1] - radius > maxY) {
+                continue;
+            }
+            System.arraycopy(data, i, out, visible * FLOATS_PER_LIGHT, FLOATS_PER_LIGHT);
+            visible++;
+        }
+        return visible;
+    }
+
+    public boolean isAlive(int light) {
+        return light >= 0 && light < count && alive[light];
+    }
+
+    /**
+     * @return number of lights alive
+     */
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * @return goes up whenever a light changes, so viewports know they have to render again
+     */
+    public long getVersion() {
+        return version;
+    }
+}
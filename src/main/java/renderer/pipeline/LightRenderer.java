@@ -0,0 +1,107 @@
+package renderer.pipeline;
+
+import gefe.visual.Camera;
+import org.lwjgl.BufferUtils;
+import renderer.Shader;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL20C.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20C.glVertexAttribPointer;
+import static org.lwjgl.opengl.GL30C.glBindVertexArray;
+import static org.lwjgl.opengl.GL30C.glDeleteVertexArrays;
+import static org.lwjgl.opengl.GL30C.glGenVertexArrays;
+import static org.lwjgl.opengl.GL31C.glDrawArraysInstanced;
+import static org.lwjgl.opengl.GL33C.glVertexAttribDivisor;
+
+/**
+ * Draws point lights into the light accumulation buffer.
+ * <p>
+ * The lights the camera can see are uploaded as one instance each and drawn with a single instanced call,
+ * every light a quad around its radius that adds its color to what is already there. The cost depends on how much
+ * of the screen the lights cover, not on how many objects they light.
+ */
+class LightRenderer {
+    private static final int LIGHT_SIZE_BYTES = LightList.FLOATS_PER_LIGHT * Float.BYTES;
+
+    private Shader shader;
+    private int vaoID, vboID;
+    private float[] visible = new float[0];
+    private FloatBuffer upload = BufferUtils.createFloatBuffer(0);
+    private int drawn = 0;
+
+    void init() {
+        shader = new Shader("assets/shaders/light.glsl");
+        shader.compile();
+        shader.link();
+
+        vaoID = glGenVertexArrays();
+        glBindVertexArray(vaoID);
+
+        vboID = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+
+        // x, y, radius
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, LIGHT_SIZE_BYTES, 0);
+        glEnableVertexAttribArray(0);
+        glVertexAttribDivisor(0, 1);
+
+        // r, g, b, intensity
+        glVertexAttribPointer(1, 4, GL_FLOAT, false, LIGHT_SIZE_BYTES, 3 * Float.BYTES);
+        glEnableVertexAttribArray(1);
+        glVertexAttribDivisor(1, 1);
+
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Adds the visible lights to the bound framebuffer, which holds the ambient light
+     */
+    void draw(LightList lights, Camera camera) {
+        int capacity = lights.size() * LightList.FLOATS_PER_LIGHT;
+        if (visible.length < capacity) {
+            visible = new float[capacity];
+            upload = BufferUtils.createFloatBuffer(capacity);
+        }
+
+        float minX = camera.position.x, minY = camera.position.y;
+        drawn = lights.cull(visible, minX, minY, minX + camera.getProjectionWidth(), minY + camera.getProjectionHeight());
+        if (drawn == 0) {
+            return;
+        }
+
+        upload.clear();
+        upload.put(visible, 0, drawn * LightList.FLOATS_PER_LIGHT).flip();
+        glBindBuffer(GL_ARRAY_BUFFER, vboID);
+        // New storage every frame, so the driver does not wait for last frame's draw to finish with the old one
+        glBufferData(GL_ARRAY_BUFFER, (long) visible.length * Float.BYTES, GL_STREAM_DRAW);
+        glBufferSubData(GL_ARRAY_BUFFER, 0, upload);
+
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_ONE, GL_ONE);
+
+        shader.use();
+        shader.uploadMatrix4f("uProjectionMatrix", camera.getProjectionMatrix());
+        shader.uploadMatrix4f("uViewMatrix", camera.getViewMatrix());
+        glBindVertexArray(vaoID);
+        glDrawArraysInstanced(GL_TRIANGLE_STRIP, 0, 4, drawn);
+        glBindVertexArray(0);
+        shader.detach();
+
+        glDisable(GL_BLEND);
+    }
+
+    /**
+     * @return lights drawn in the last {@link #draw(LightList, Camera)}, after culling
+     */
+    int getDrawn() {
+        return drawn;
+    }
+
+    void delete() {
+        glDeleteBuffers(vboID);
+        glDeleteVertexArrays(vaoID);
+    }
+}
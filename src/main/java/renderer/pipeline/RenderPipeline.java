@@ -0,0 +1,327 @@
+package renderer.pipeline;
+
+import gefe.visual.Camera;
+import gefe.visual.Scene;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import renderer.Framebuffer;
+import renderer.Shader;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL13C.*;
+import static org.lwjgl.opengl.GL30C.*;
+
+/**
+ * Renders a scene through lighting and post processing into a framebuffer.
+ * <p>
+ * Passes, in order:
+ * <ul>
+ *     <li><b>Scene-</b> the scene is drawn into a floating point target, so colors can go above 1</li>
+ *     <li><b>Lighting-</b> every point light adds its color to a light accumulation buffer that starts at the
+ *     ambient color, the scene is then multiplied by it. The buffer can be a lower resolution than the scene,
+ *     light changes slowly across the screen</li>
+ *     <li><b>Bloom-</b> what is brighter than the threshold is blurred through a chain of ever smaller targets
+ *     and added back on top, so bright lights glow</li>
+ *     <li><b>Tone mapping-</b> brings the colors back into the 0 to 1 range of the screen with a filmic curve.
+ *     When it is off, the colors are clamped instead</li>
+ * </ul>
+ * Every pass except the scene can be turned off, and each one is timed on the GPU, see {@link #getGpuMillis(Pass)}.
+ * With every pass off the scene is drawn straight into the output, just like without a pipeline.
+ * All temporary targets come from a {@link RenderTargetPool} and go back as soon as the next pass read them.
+ */
+public class RenderPipeline {
+
+    public enum Pass {
+        SCENE, LIGHTING, BLOOM, TONEMAP
+    }
+
+    public static final int MAX_BLOOM_LEVELS = 6;
+    private static final int HDR_FORMAT = GL_RGBA16F;
+
+    private final boolean[] enabled = new boolean[Pass.values().length];
+    private final Vector3f ambient = new Vector3f(1.0f, 1.0f, 1.0f);
+    private float lightResolutionScale = 0.5f;
+    private float bloomThreshold = 1.0f;
+    private float bloomIntensity = 0.6f;
+    private float exposure = 1.0f;
+    private long version = 0; // goes up when a setting changes
+
+    // Created on the first render, it needs the main context
+    private boolean initialized = false;
+    private Shader compositeShader, bloomShader, tonemapShader;
+    private int vaoID; // empty, the full screen passes make their vertices from the vertex number
+    private final LightRenderer lightRenderer = new LightRenderer();
+    private final GpuTimer timer = new GpuTimer(Pass.values().length);
+    private final Framebuffer[] bloomLevels = new Framebuffer[MAX_BLOOM_LEVELS];
+    private final Vector2f texelSize = new Vector2f();
+
+    public RenderPipeline() {
+        enabled[Pass.SCENE.ordinal()] = true;
+        enabled[Pass.LIGHTING.ordinal()] = true; // costs nothing while there are no lights and the ambient is white
+    }
+
+    private void init() {
+        compositeShader = load("assets/shaders/composite.glsl");
+        bloomShader = load("assets/shaders/bloom.glsl");
+        tonemapShader = load("assets/shaders/tonemap.glsl");
+        lightRenderer.init();
+        vaoID = glGenVertexArrays();
+        initialized = true;
+    }
+
+    private static Shader load(String filePath) {
+        Shader shader = new Shader(filePath);
+        shader.compile();
+        shader.link();
+        return shader;
+    }
+
+    /**
+     * Renders the scene through every enabled pass
+     *
+     * @param scene      scene to draw
+     * @param camera     camera to draw it with
+     * @param lights     lights of the scene
+     * @param output     where the final image goes, 8 bits per channel
+     * @param clearColor background of the scene
+     * @param pool       where the temporary targets come from
+     */
+    public void render(Scene scene, Camera camera, LightList lights, Framebuffer output, Vector4f clearColor,
+                       RenderTargetPool pool) {
+        if (!initialized) {
+            init();
+        }
+
+        boolean lighting = enabled[Pass.LIGHTING.ordinal()] && (lights.size() > 0 || !ambient.equals(1.0f, 1.0f, 1.0f));
+        boolean bloom = enabled[Pass.BLOOM.ordinal()];
+        boolean tonemap = enabled[Pass.TONEMAP.ordinal()];
+
+        if (!lighting && !bloom && !tonemap) {
+            // Nothing to post process
+            drawScene(scene, camera, output, clearColor);
+            output.unbind();
+            return;
+        }
+
+        int width = output.getWidth(), height = output.getHeight();
+        Framebuffer hdr = pool.acquire(width, height, HDR_FORMAT, true);
+        drawScene(scene, camera, hdr, clearColor);
+
+        glDisable(GL_BLEND);
+        glBindVertexArray(vaoID);
+
+        if (lighting) {
+            // The last pass can write straight into the output
+            Framebuffer lit = bloom || tonemap ? pool.acquire(width, height, HDR_FORMAT, false) : output;
+            light(hdr, lights, camera, lit, pool);
+            pool.release(hdr);
+            hdr = lit;
+        }
+
+        if (hdr != output) {
+            Framebuffer bloomTexture = bloom ? bloom(hdr, pool) : null;
+            tonemap(hdr, bloomTexture, tonemap, output);
+            pool.release(hdr);
+            pool.release(bloomTexture);
+        }
+
+        glActiveTexture(GL_TEXTURE1);
+        glBindTexture(GL_TEXTURE_2D, 0);
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, 0);
+        glBindVertexArray(0);
+        output.unbind();
+    }
+
+    private void drawScene(Scene scene, Camera camera, Framebuffer target, Vector4f clearColor) {
+        timer.begin(Pass.SCENE.ordinal());
+        target.bind();
+        glClearColor(clearColor.x, clearColor.y, clearColor.z, clearColor.w);
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        scene.render(camera);
+        timer.end();
+    }
+
+    private void light(Framebuffer scene, LightList lights, Camera camera, Framebuffer destination, RenderTargetPool pool) {
+        timer.begin(Pass.LIGHTING.ordinal());
+        int width = Math.max(1, Math.round(scene.getWidth() * lightResolutionScale));
+        int height = Math.max(1, Math.round(scene.getHeight() * lightResolutionScale));
+        Framebuffer accumulation = pool.acquire(width, height, HDR_FORMAT, false);
+
+        accumulation.bind();
+        glClearColor(ambient.x, ambient.y, ambient.z, 1.0f);
+        glClear(GL_COLOR_BUFFER_BIT);
+        lightRenderer.draw(lights, camera);
+
+        // The light renderer has its own vertex array
+        glBindVertexArray(vaoID);
+        destination.bind();
+        compositeShader.use();
+        compositeShader.uploadTexture("uScene", 0);
+        compositeShader.uploadTexture("uLight", 1);
+        bindTextures(scene, accumulation);
+        glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+        compositeShader.detach();
+
+        pool.release(accumulation);
+        timer.end();
+    }
+
+    /**
+     * @return the blurred bright parts at half the size of the source, release it when done
+     */
+    private Framebuffer bloom(Framebuffer source, RenderTargetPool pool) {
+        timer.begin(Pass.BLOOM.ordinal());
+        bloomShader.use();
+        bloomShader.uploadTexture("uSource", 0);
+        bloomShader.uploadFloat("uThreshold", bloomThreshold);
+        glActiveTexture(GL_TEXTURE0);
+
+        // Down the chain, the first level only keeps what is bright enough
+        int levels = 0;
+        Framebuffer previous = source;
+        int width = source.getWidth(), height = source.getHeight();
+        while (levels < MAX_BLOOM_LEVELS && (levels == 0 || width > 1 || height > 1)) {
+            width = Math.max(1, width / 2);
+            height = Math.max(1, height / 2);
+            Framebuffer level = pool.acquire(width, height, HDR_FORMAT, false);
+            level.bind();
+            bloomShader.uploadInt("uMode", levels == 0 ? 0 : 1);
+            bloomShader.uploadVec2f("uTexelSize", texelSize.set(1.0f / previous.getWidth(), 1.0f / previous.getHeight()));
+            glBindTexture(GL_TEXTURE_2D, previous.getTextureID());
+            glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+
+            bloomLevels[levels++] = level;
+            previous = level;
+        }
+
+        // And back up, every level is blurred and added to the one above it
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_ONE, GL_ONE);
+        bloomShader.uploadInt("uMode", 2);
+        for (int i = levels - 1; i > 0; i--) {
+            Framebuffer level = bloomLevels[i];
+            bloomLevels[i - 1].bind();
+            bloomShader.uploadVec2f("uTexelSize", texelSize.set(1.0f / level.getWidth(), 1.0f / level.getHeight()));
+            glBindTexture(GL_TEXTURE_2D, level.getTextureID());
+            glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+            pool.release(level);
+            bloomLevels[i] = null;
+        }
+        glDisable(GL_BLEND);
+        bloomShader.detach();
+
+        Framebuffer result = bloomLevels[0];
+        bloomLevels[0] = null;
+        timer.end();
+        return result;
+    }
+
+    private void tonemap(Framebuffer hdr, Framebuffer bloom, boolean tonemap, Framebuffer output) {
+        timer.begin(Pass.TONEMAP.ordinal());
+        output.bind();
+        tonemapShader.use();
+        tonemapShader.uploadTexture("uScene", 0);
+        tonemapShader.uploadTexture("uBloom", 1);
+        tonemapShader.uploadFloat("uBloomIntensity", bloom == null ? 0.0f : bloomIntensity);
+        tonemapShader.uploadFloat("uExposure", exposure);
+        tonemapShader.uploadInt("uTonemap", tonemap ? 1 : 0);
+        bindTextures(hdr, bloom == null ? hdr : bloom);
+        glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+        tonemapShader.detach();
+        timer.end();
+    }
+
+    private static void bindTextures(Framebuffer first, Framebuffer second) {
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, first.getTextureID());
+        glActiveTexture(GL_TEXTURE1);
+        glBindTexture(GL_TEXTURE_2D, second.getTextureID());
+    }
+
+    /**
+     * Turns a pass on or off, the scene pass is always on
+     */
+    public void setEnabled(Pass pass, boolean enabled) {
+        if (pass == Pass.SCENE) {
+            throw new IllegalArgumentException("The scene pass can not be turned off");
+        }
+        if (this.enabled[pass.ordinal()] != enabled) {
+            this.enabled[pass.ordinal()] = enabled;
+            if (!enabled) {
+                timer.reset(pass.ordinal());
+            }
+            version++;
+        }
+    }
+
+    public boolean isEnabled(Pass pass) {
+        return enabled[pass.ordinal()];
+    }
+
+    /**
+     * @return smoothed GPU time of the pass in milliseconds, 0 while it is off
+     */
+    public double getGpuMillis(Pass pass) {
+        return timer.getMillis(pass.ordinal());
+    }
+
+    /**
+     * Light that reaches everything, white leaves the scene as it is where no light shines
+     */
+    public void setAmbient(float r, float g, float b) {
+        ambient.set(r, g, b);
+        version++;
+    }
+
+    /**
+     * @param scale size of the light accumulation buffer as a fraction of the output, lower is faster but blurrier
+     */
+    public void setLightResolutionScale(float scale) {
+        lightResolutionScale = scale;
+        version++;
+    }
+
+    /**
+     * @param threshold brightness a color needs before it starts to glow, 1 is the brightest the screen can show
+     */
+    public void setBloomThreshold(float threshold) {
+        bloomThreshold = threshold;
+        version++;
+    }
+
+    public void setBloomIntensity(float intensity) {
+        bloomIntensity = intensity;
+        version++;
+    }
+
+    public void setExposure(float exposure) {
+        this.exposure = exposure;
+        version++;
+    }
+
+    /**
+     * @return number of lights drawn last time, after culling the ones the camera does not see
+     */
+    public int getLightsDrawn() {
+        return lightRenderer.getDrawn();
+    }
+
+    /**
+     * @return goes up whenever a setting changes, so viewports know they have to render again
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void delete() {
+        if (!initialized) {
+            return;
+        }
+        lightRenderer.delete();
+        timer.delete();
+        glDeleteVertexArrays(vaoID);
+        initialized = false;
+    }
+}
@@ -0,0 +1,167 @@
+package renderer.pipeline;
+
+import renderer.Framebuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hands out temporary render targets and takes them back, so passes do not create framebuffers every frame.
+ * <p>
+ * Targets are matched on size, format and depth. A pass acquires what it needs, renders, and releases the targets
+ * as soon as the next pass has read them, so one pool shared by every viewport keeps only a handful alive.
+ * Targets that were not used for a while (after a window resize, or an effect that was turned off) are deleted
+ * in {@link #endFrame()}.
+ * <p>
+ * There are only ever a few different kinds of targets, so they are kept in a short list that is searched
+ * instead of a map. Once the pool has warmed up, acquiring and releasing allocates nothing.
+ */
+public class RenderTargetPool {
+    public static final int UNUSED_FRAMES_BEFORE_DELETE = 120;
+
+    private final List<Bucket> buckets = new ArrayList<>();
+    private long frame = 0;
+    private int created = 0, live = 0, inUse = 0;
+
+    /**
+     * @param width          width in pixels
+     * @param height         height in pixels
+     * @param internalFormat format of the color texture, like GL_RGBA8 or GL_RGBA16F
+     * @param depth          true if the target needs a depth buffer
+     * @return a target with undefined content, give it back with {@link #release(Framebuffer)}
+     */
+    public Framebuffer acquire(int width, int height, int internalFormat, boolean depth) {
+        inUse++;
+        Bucket bucket = find(width, height, internalFormat, depth);
+        if (bucket != null && bucket.count > 0) {
+            // Most recently released first, it is most likely still in cache
+            Framebuffer framebuffer = bucket.targets[--bucket.count];
+            bucket.targets[bucket.count] = null;
+            return framebuffer;
+        }
+
+        created++;
+        live++;
+        return new Framebuffer(width, height, internalFormat, depth);
+    }
+
+    public void release(Framebuffer framebuffer) {
+        if (framebuffer == null) {
+            return;
+        }
+        inUse--;
+        int width = framebuffer.getWidth(), height = framebuffer.getHeight();
+        int internalFormat = framebuffer.getInternalFormat();
+        boolean depth = framebuffer.hasDepth();
+
+        Bucket bucket = find(width, height, internalFormat, depth);
+        if (bucket == null) {
+            bucket = new Bucket(width, height, internalFormat, depth);
+            buckets.add(bucket);
+        }
+        bucket.push(framebuffer, frame);
+    }
+
+    private Bucket find(int width, int height, int internalFormat, boolean depth) {
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket.width == width && bucket.height == height
+                    && bucket.internalFormat == internalFormat && bucket.depth == depth) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deletes the targets that have not been used for {@link #UNUSED_FRAMES_BEFORE_DELETE} frames, call it once a frame
+     */
+    public void endFrame() {
+        frame++;
+        for (int i = buckets.size() - 1; i >= 0; i--) {
+            Bucket bucket = buckets.get(i);
+            // The oldest targets are at the bottom
+            int stale = 0;
+            while (stale < bucket.count && frame - bucket.releasedFrames[stale] > UNUSED_FRAMES_BEFORE_DELETE) {
+                bucket.targets[stale].delete();
+                stale++;
+            }
+            if (stale == 0) {
+                continue;
+            }
+            live -= stale;
+            bucket.removeBottom(stale);
+            if (bucket.count == 0) {
+                buckets.remove(i); // nothing of this kind was used in a while, likely an old window size
+            }
+        }
+    }
+
+    /**
+     * Deletes every target that is not in use
+     */
+    public void delete() {
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            for (int t = 0; t < bucket.count; t++) {
+                bucket.targets[t].delete();
+            }
+            live -= bucket.count;
+        }
+        buckets.clear();
+    }
+
+    /**
+     * @return how many targets were created since the start, stops going up once the pool has warmed up
+     */
+    public int getCreated() {
+        return created;
+    }
+
+    /**
+     * @return how many targets exist, in use or free
+     */
+    public int getLive() {
+        return live;
+    }
+
+    public int getInUse() {
+        return inUse;
+    }
+
+    /**
+     * Free targets of one kind, a stack with the frame each one was released in
+     */
+    private static final class Bucket {
+        private final int width, height, internalFormat;
+        private final boolean depth;
+        private Framebuffer[] targets = new Framebuffer[4];
+        private long[] releasedFrames = new long[4];
+        private int count = 0;
+
+        private Bucket(int width, int height, int internalFormat, boolean depth) {
+            this.width = width;
+            this.height = height;
+            this.internalFormat = internalFormat;
+            this.depth = depth;
+        }
+
+        private void push(Framebuffer framebuffer, long frame) {
+            if (count == targets.length) {
+                targets = Arrays.copyOf(targets, count * 2);
+                releasedFrames = Arrays.copyOf(releasedFrames, count * 2);
+            }
+            targets[count] = framebuffer;
+            releasedFrames[count] = frame;
+            count++;
+        }
+
+        private void removeBottom(int removed) {
+            System.arraycopy(targets, removed, targets, 0, count - removed);
+            System.arraycopy(releasedFrames, removed, releasedFrames, 0, count - removed);
+            Arrays.fill(targets, count - removed, count, null);
+            count -= removed;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package audio;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Mono decoder without a file: sample n of the track is {@link #sample(int)}, never 0, so silence in a mix
+ * can be told apart from the track.
+ */
+class FakeDecoder implements AudioDecoder {
+    static final int SAMPLE_RATE = 44100;
+
+    private final int frames;
+    private final boolean lengthKnown;
+    private int position = 0;
+    volatile int rewinds = 0;
+    volatile boolean closed = false;
+
+    FakeDecoder(int frames, boolean lengthKnown) {
+        this.frames = frames;
+        this.lengthKnown = lengthKnown;
+    }
+
+    static short sample(int frame) {
+        return (short) (frame % 1000 + 1);
+    }
+
+    @Override
+    public int getChannels() {
+        return 1;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return SAMPLE_RATE;
+    }
+
+    @Override
+    public int getLengthInFrames() {
+        return lengthKnown ? frames : -1;
+    }
+
+    @Override
+    public int read(ShortBuffer pcm) {
+        int count = Math.min(frames - position, pcm.remaining());
+        for (int i = 0; i < count; i++) {
+            pcm.put(pcm.position() + i, sample(position + i));
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void rewind() {
+        position = 0;
+        rewinds++;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,96 @@
+package audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicStreamTest {
+    private static final int BLOCK = 1024;
+    private static final int TRACK_FRAMES = MusicStream.CHUNK_FRAMES * 5 + 123; // more than the ring holds, not a whole number of chunks
+
+    /**
+     * Mixes until the stream stops or enough frames of the track came out, the silence while the decoder
+     * is behind is skipped
+     *
+     * @return the left channel of the mix, without silence
+     */
+    private static short[] play(AudioEngine engine, NullAudioDevice device, MusicStream stream, int maxFrames) {
+        short[] out = new short[BLOCK * 2];
+        short[] played = new short[maxFrames];
+        int count = 0;
+        long deadline = System.nanoTime() + 10_000_000_000L;
+
+        stream.play();
+        while (stream.isPlaying() && count < maxFrames) {
+            assertTrue(System.nanoTime() < deadline, "stream did not finish");
+            engine.update();
+            device.mix(out, BLOCK);
+            boolean silent = false;
+            for (int i = 0; i < BLOCK && count < maxFrames; i++) {
+                if (out[i * 2] != 0) {
+                    played[count++] = out[i * 2];
+                } else {
+                    silent = true;
+                }
+            }
+            if (silent) {
+                Thread.yield(); // the decoder thread fell behind, give it room
+            }
+        }
+        return Arrays.copyOf(played, count);
+    }
+
+    @Test
+    void decoderThreadRefillsTheRingUntilTheEndOfTheTrack() {
+        NullAudioDevice device = new NullAudioDevice();
+        AudioEngine engine = new AudioEngine(device, 1, true);
+        FakeDecoder decoder = new FakeDecoder(TRACK_FRAMES, false);
+        MusicStream stream = engine.openMusic(decoder);
+
+        short[] played = play(engine, device, stream, TRACK_FRAMES * 2);
+        assertFalse(stream.isPlaying(), "stops at the end of the track");
+        assertEquals(TRACK_FRAMES, played.length);
+        for (int i = 0; i < played.length; i++) {
+            assertEquals(FakeDecoder.sample(i), played[i], "frame " + i);
+        }
+
+        engine.close();
+        assertTrue(decoder.closed);
+    }
+
+    @Test
+    void loopingStartsOverWithoutAGap() {
+        NullAudioDevice device = new NullAudioDevice();
+        AudioEngine engine = new AudioEngine(device, 1, false);
+        FakeDecoder decoder = new FakeDecoder(TRACK_FRAMES, false);
+        MusicStream stream = engine.openMusic(decoder);
+        stream.setLooping(true);
+
+        int frames = TRACK_FRAMES * 2 + 500;
+        short[] played = play(engine, device, stream, frames);
+        assertEquals(frames, played.length);
+        for (int i = 0; i < played.length; i++) {
+            assertEquals(FakeDecoder.sample(i % TRACK_FRAMES), played[i], "frame " + i);
+        }
+        assertTrue(stream.isPlaying());
+        assertTrue(decoder.rewinds >= 2);
+    }
+
+    @Test
+    void stopRewindsToTheStart() {
+        NullAudioDevice device = new NullAudioDevice();
+        AudioEngine engine = new AudioEngine(device, 1, false);
+        MusicStream stream = engine.openMusic(new FakeDecoder(TRACK_FRAMES, false));
+
+        play(engine, device, stream, MusicStream.CHUNK_FRAMES * 2);
+        stream.stop();
+        assertFalse(stream.isPlaying());
+
+        short[] played = play(engine, device, stream, 100);
+        for (int i = 0; i < played.length; i++) {
+            assertEquals(FakeDecoder.sample(i), played[i], "frame " + i);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VoicePoolTest {
+
+    /**
+     * Counts the sources and buffers the engine asks for
+     */
+    private static final class CountingDevice extends NullAudioDevice {
+        int sourcesCreated, buffersCreated;
+
+        @Override
+        public int createSource() {
+            sourcesCreated++;
+            return super.createSource();
+        }
+
+        @Override
+        public int createBuffer() {
+            buffersCreated++;
+            return super.createBuffer();
+        }
+    }
+
+    private static Sound loop(AudioEngine engine, String name) {
+        return engine.loadSound(name, new FakeDecoder(1000, true));
+    }
+
+    @Test
+    void stealsTheLowestPriorityVoiceAndTheOldestOnATie() {
+        AudioEngine engine = new AudioEngine(new NullAudioDevice(), 3, false);
+        VoicePool voices = engine.getVoices();
+        Sound sound = loop(engine, "loop");
+
+        long important = voices.play(sound, 1, 1.0f, 1.0f, true);
+        long oldest = voices.play(sound, 0, 1.0f, 1.0f, true);
+        long newer = voices.play(sound, 0, 1.0f, 1.0f, true);
+        assertEquals(3, voices.getActiveVoices());
+
+        long stolen = voices.play(sound, 0, 1.0f, 1.0f, true);
+        assertNotEquals(VoicePool.NO_VOICE, stolen);
+        assertEquals(1, voices.getSteals());
+        assertFalse(voices.isPlaying(oldest), "the old handle no longer owns the voice");
+        assertTrue(voices.isPlaying(important));
+        assertTrue(voices.isPlaying(newer));
+        assertTrue(voices.isPlaying(stolen));
+        assertEquals(oldest & 0xFFFFFFFFL, stolen & 0xFFFFFFFFL, "same voice, new generation");
+    }
+
+    @Test
+    void lowerPriorityIsDroppedButHigherPriorityAlwaysPlays() {
+        AudioEngine engine = new AudioEngine(new NullAudioDevice(), 2, false);
+        VoicePool voices = engine.getVoices();
+        Sound sound = loop(engine, "loop");
+        long first = voices.play(sound, 5, 1.0f, 1.0f, true);
+        long second = voices.play(sound, 5, 1.0f, 1.0f, true);
+
+        assertEquals(VoicePool.NO_VOICE, voices.play(sound, 1, 1.0f, 1.0f, false));
+        assertTrue(voices.isPlaying(first));
+        assertTrue(voices.isPlaying(second));
+
+        long urgent = voices.play(sound, 9, 1.0f, 1.0f, false);
+        assertNotEquals(VoicePool.NO_VOICE, urgent);
+        assertTrue(voices.isPlaying(urgent));
+        assertFalse(voices.isPlaying(first), "the oldest of the equal priorities was stolen");
+        assertTrue(voices.isPlaying(second));
+    }
+
+    @Test
+    void playingReusesThePoolSourcesWithoutAllocating() {
+        CountingDevice device = new CountingDevice();
+        AudioEngine engine = new AudioEngine(device, 4, false);
+        Sound sound = loop(engine, "loop");
+        int sources = device.sourcesCreated, buffers = device.buffersCreated;
+        assertEquals(4, sources);
+
+        for (int i = 0; i < 1000; i++) {
+            long handle = engine.play(sound, 0, 1.0f, 1.0f, true);
+            assertTrue((handle & 0xFFFFFFFFL) < 4, "always one of the pool voices");
+        }
+        assertEquals(sources, device.sourcesCreated);
+        assertEquals(buffers, device.buffersCreated);
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 10000; i++) {
+            engine.play(sound, 0, 1.0f, 1.0f, true);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue(allocated < 1024, "play allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void reloadingASoundStopsTheVoicesThatPlayIt() {
+        NullAudioDevice device = new NullAudioDevice();
+        AudioEngine engine = new AudioEngine(device, 4, false);
+        Sound first = loop(engine, "hit");
+        Sound other = loop(engine, "other");
+        long playing = engine.play(first, 0, 1.0f, 1.0f, true);
+        long untouched = engine.play(other, 0, 1.0f, 1.0f, true);
+
+        Sound reloaded = loop(engine, "hit");
+        assertNotSame(first, reloaded);
+        assertSame(reloaded, engine.getSound("hit"));
+        assertFalse(engine.getVoices().isPlaying(playing));
+        assertTrue(engine.getVoices().isPlaying(untouched));
+
+        device.mix(new short[2048], 1024);
+        assertTrue(engine.getVoices().isPlaying(untouched));
+    }
+}
@@ -0,0 +1,56 @@
+package gefe.editor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EditHistoryTest {
+
+    private static EditHistory historyOfThreeEdits() {
+        EditHistory history = new EditHistory(TileMap.empty());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(history.execute(new PaintTilesCommand().add(i, 0, i + 1)));
+        }
+        return history;
+    }
+
+    @Test
+    void restoringAnEarlierVersionUndoesUpToIt() {
+        EditHistory history = historyOfThreeEdits();
+        history.undo();
+        history.undo();
+        TileMap first = history.getCurrent();
+        history.redo();
+        history.redo();
+
+        history.restore(first);
+        assertSame(first, history.getCurrent());
+        assertEquals(1, history.getUndoSteps());
+        assertTrue(history.canRedo());
+    }
+
+    @Test
+    void restoringALaterVersionRedoesUpToIt() {
+        EditHistory history = historyOfThreeEdits();
+        TileMap last = history.getCurrent();
+        history.undo();
+        history.undo();
+
+        history.restore(last);
+        assertSame(last, history.getCurrent());
+        assertEquals(3, history.getUndoSteps());
+        assertFalse(history.canRedo());
+        assertEquals(3, history.getCurrent().getTile(2, 0));
+    }
+
+    @Test
+    void restoringAnUnknownVersionForgetsTheHistory() {
+        EditHistory history = historyOfThreeEdits();
+        TileMap other = TileMap.empty().edit().setTile(5, 5, 9).commit();
+
+        history.restore(other);
+        assertSame(other, history.getCurrent());
+        assertFalse(history.canUndo());
+        assertFalse(history.canRedo());
+    }
+}
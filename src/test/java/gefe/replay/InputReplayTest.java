@@ -0,0 +1,120 @@
+package gefe.replay;
+
+import gefe.input.KeyListener;
+import gefe.input.MouseListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.glfw.GLFW.GLFW_PRESS;
+import static org.lwjgl.glfw.GLFW.GLFW_RELEASE;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+class InputReplayTest {
+    private static final int FRAMES = 1000;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Feeds random input through the listener callbacks, the way GLFW would during a frame
+     */
+    private static void randomInput(Random random) {
+        for (int i = random.nextInt(4); i > 0; i--) {
+            KeyListener.keyCallback(NULL, random.nextInt(InputFrame.KEY_COUNT), 0,
+                    random.nextBoolean() ? GLFW_PRESS : GLFW_RELEASE, 0);
+        }
+        if (random.nextInt(3) == 0) {
+            MouseListener.mouseButtonCallback(NULL, random.nextInt(InputFrame.MOUSE_BUTTON_COUNT),
+                    random.nextBoolean() ? GLFW_PRESS : GLFW_RELEASE, 0);
+        }
+        if (random.nextBoolean()) {
+            MouseListener.mousePosCallback(NULL, random.nextInt(1920), random.nextInt(1080));
+        }
+        if (random.nextInt(10) == 0) {
+            MouseListener.scrollCallback(NULL, 0, random.nextBoolean() ? 1 : -1);
+        }
+    }
+
+    private static void releaseEverything() {
+        for (int key = 0; key < InputFrame.KEY_COUNT; key++) {
+            KeyListener.keyCallback(NULL, key, 0, GLFW_RELEASE, 0);
+        }
+        for (int button = 0; button < InputFrame.MOUSE_BUTTON_COUNT; button++) {
+            MouseListener.mouseButtonCallback(NULL, button, GLFW_RELEASE, 0);
+        }
+        MouseListener.mousePosCallback(NULL, 0, 0);
+        MouseListener.endFrame();
+    }
+
+    @Test
+    void replayReproducesEveryRecordedFrame() throws Exception {
+        Path file = directory.resolve("test.replay");
+        Random random = new Random(42);
+        InputFrame[] recorded = new InputFrame[FRAMES];
+
+        releaseEverything();
+        try (InputRecorder recorder = new InputRecorder(file, 1234L)) {
+            for (int i = 0; i < FRAMES; i++) {
+                randomInput(random);
+                float deltaTime = 1.0f / 60.0f + random.nextFloat() * 0.001f;
+                recorder.record(deltaTime);
+
+                recorded[i] = new InputFrame();
+                recorded[i].capture(deltaTime);
+                MouseListener.endFrame();
+            }
+            assertEquals(FRAMES, recorder.getFrames());
+        }
+
+        releaseEverything();
+        InputPlayer player = InputPlayer.load(file);
+        assertEquals(1234L, player.getSeed());
+
+        InputFrame replayed = new InputFrame();
+        for (int i = 0; i < FRAMES; i++) {
+            assertTrue(player.hasNext(), "frame " + i + " is missing");
+            float deltaTime = player.next();
+            assertEquals(recorded[i].getDeltaTime(), deltaTime, "delta time of frame " + i);
+
+            // What the game sees through the listeners has to be what it saw while recording
+            replayed.capture(deltaTime);
+            assertEquals(recorded[i], replayed, "input of frame " + i);
+            MouseListener.endFrame();
+        }
+        assertFalse(player.hasNext());
+        assertEquals(FRAMES, player.getFrames());
+    }
+
+    @Test
+    void loopbackDeliversEveryFrameAfterTheLatency() {
+        Random random = new Random(7);
+        LoopbackChannel channel = new LoopbackChannel(3);
+        InputFrame[] sent = new InputFrame[100];
+        InputFrame received = new InputFrame();
+        int receivedCount = 0;
+
+        releaseEverything();
+        for (int tick = 0; tick < sent.length + 3; tick++) {
+            if (tick < sent.length) {
+                randomInput(random);
+                sent[tick] = new InputFrame();
+                sent[tick].capture(tick * 0.5f);
+                channel.send(sent[tick]);
+                MouseListener.endFrame();
+            }
+
+            while (channel.receive(received)) {
+                assertEquals(tick - 3, receivedCount, "arrived after exactly the latency");
+                assertEquals(sent[receivedCount], received, "frame " + receivedCount);
+                receivedCount++;
+            }
+            channel.tick();
+        }
+        assertEquals(sent.length, receivedCount);
+        assertEquals(0, channel.getPending());
+    }
+}
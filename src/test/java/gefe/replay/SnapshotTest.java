@@ -0,0 +1,88 @@
+package gefe.replay;
+
+import gefe.animation.AnimationClip;
+import gefe.animation.AnimationStateMachine;
+import gefe.animation.AnimatorSystem;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+    private static final int ENTITIES = 10_000;
+
+    private static AnimatorSystem animators(int count) {
+        AnimationStateMachine machine = new AnimationStateMachine()
+                .addState(0, new AnimationClip(new int[]{0, 1, 2, 3}, 8.0f, true))
+                .addState(1, new AnimationClip(new int[]{4, 5, 6}, 12.0f, false))
+                .addTransition(0, 1, 0.2f)
+                .addTransition(1, 0, 0.1f);
+
+        AnimatorSystem system = new AnimatorSystem();
+        for (int i = 0; i < count; i++) {
+            int animator = system.create(machine, 0);
+            system.setSpeed(animator, 0.5f + (i % 7) * 0.25f);
+        }
+        for (int i = 0; i < count; i += 3) {
+            system.destroy(i); // leave holes in the free list
+        }
+        return system;
+    }
+
+    @Test
+    void savingALoadedSnapshotGivesTheSameBytes() {
+        AnimatorSystem system = animators(ENTITIES);
+        for (int i = 1; i < ENTITIES; i += 5) {
+            if (system.isAlive(i)) {
+                system.setState(i, 1);
+            }
+        }
+        system.update(0.05);
+
+        SnapshotRing ring = new SnapshotRing(4);
+        ring.save(10, system);
+
+        // Move away from the snapshot, then rewind to it
+        for (int frame = 0; frame < 20; frame++) {
+            system.update(1.0 / 60.0);
+        }
+        system.create(AnimationStateMachine.single(new AnimationClip(new int[]{9}, 1.0f, true)), 0);
+        assertTrue(ring.load(10, system));
+
+        ring.save(11, system);
+        assertTrue(ring.get(10).contentEquals(ring.get(11)));
+        assertTrue(ring.get(10).size() > ENTITIES * 4 * Integer.BYTES);
+    }
+
+    @Test
+    void ringForgetsFramesThatWereOverwritten() {
+        AnimatorSystem system = animators(10);
+        SnapshotRing ring = new SnapshotRing(4);
+        for (long frame = 0; frame < 6; frame++) {
+            ring.save(frame, system);
+        }
+        assertNull(ring.get(1));
+        assertNotNull(ring.get(2));
+        assertFalse(ring.load(0, system));
+        assertTrue(ring.load(5, system));
+    }
+
+    @Test
+    void snapshotOfTenThousandEntitiesTakesUnderAMillisecond() {
+        AnimatorSystem system = animators(ENTITIES);
+        SnapshotBuffer buffer = new SnapshotBuffer();
+
+        // Let the buffer grow and the JIT compile the copy loops before measuring
+        for (int i = 0; i < 500; i++) {
+            buffer.save(system);
+            buffer.load(system);
+        }
+
+        int rounds = 1000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            buffer.save(system);
+        }
+        double averageMillis = (System.nanoTime() - start) / 1e6 / rounds;
+        assertTrue(averageMillis < 1.0, "a snapshot took " + averageMillis + " ms");
+    }
+}
@@ -0,0 +1,47 @@
+package renderer.font;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Glyph shapes without a font file: every glyph is a solid square with the same advance, a space is empty.
+ * The pair "AV" is kerned, so layout tests can see kerning applied.
+ */
+class FakeRasterizer implements GlyphRasterizer {
+    static final float ADVANCE = 10.0f; // at the base size
+    static final int GLYPH_SIZE = 8;
+    static final float KERNING_AV = -2.0f;
+
+    int rasterized = 0;
+
+    @Override
+    public float getAscent(float pixelHeight) {
+        return pixelHeight * 0.75f;
+    }
+
+    @Override
+    public float getLineHeight(float pixelHeight) {
+        return pixelHeight * 1.25f;
+    }
+
+    @Override
+    public float getKerning(int codepoint, int nextCodepoint, float pixelHeight) {
+        return codepoint == 'A' && nextCodepoint == 'V' ? KERNING_AV : 0.0f;
+    }
+
+    @Override
+    public void rasterize(Glyph glyph, float pixelHeight, ByteBuffer target, int stride, int maxSize) {
+        rasterized++;
+        glyph.advance = ADVANCE;
+        if (glyph.codepoint == ' ') {
+            return;
+        }
+
+        glyph.width = GLYPH_SIZE;
+        glyph.height = GLYPH_SIZE;
+        for (int y = 0; y < GLYPH_SIZE; y++) {
+            for (int x = 0; x < GLYPH_SIZE; x++) {
+                target.put(target.position() + y * stride + x, (byte) 255);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package renderer.font;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlyphCacheTest {
+    private static final float BASE_SIZE = 16.0f;
+    private static final int ATLAS_SIZE = 32;
+    private static final int CELL_SIZE = 16; // a 2x2 grid, four glyphs fit
+
+    @Test
+    void glyphsAreBakedOnceAndFillTheFreeCellsFirst() {
+        FakeRasterizer rasterizer = new FakeRasterizer();
+        GlyphCache cache = new GlyphCache(rasterizer, BASE_SIZE, ATLAS_SIZE, CELL_SIZE);
+
+        assertEquals(4, cache.getCapacity());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, cache.get('a' + i).getSlot());
+        }
+        cache.get('a');
+        assertEquals(4, rasterizer.rasterized);
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    void fullAtlasEvictsTheLeastRecentlyUsedGlyphAndReusesItsSlot() {
+        GlyphCache cache = new GlyphCache(new FakeRasterizer(), BASE_SIZE, ATLAS_SIZE, CELL_SIZE);
+        List<Integer> evicted = new ArrayList<>();
+        cache.setListener(new GlyphCache.AtlasListener() {
+            @Override
+            public void glyphEvicted(Glyph glyph) {
+                evicted.add(glyph.codepoint);
+            }
+
+            @Override
+            public void cellChanged(int x, int y, int size, ByteBuffer pixels) {
+            }
+        });
+
+        Glyph a = cache.get('a');
+        Glyph b = cache.get('b');
+        cache.get('c');
+        cache.get('d');
+        cache.get('a'); // b is the least recently used now
+
+        Glyph e = cache.get('e');
+        assertEquals(List.of((int) 'b'), evicted);
+        assertEquals(1, cache.getEvictions());
+        assertFalse(cache.contains('b'));
+        assertEquals(-1, b.getSlot());
+        assertEquals(1, e.getSlot());
+
+        cache.get('f'); // then c, a was used after it
+        assertEquals(List.of((int) 'b', (int) 'c'), evicted);
+        assertTrue(cache.contains('a'));
+        assertEquals(0, a.getSlot());
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    void evictedGlyphIsBakedAgainIntoAnotherCell() {
+        GlyphCache cache = new GlyphCache(new FakeRasterizer(), BASE_SIZE, ATLAS_SIZE, CELL_SIZE);
+        Glyph first = cache.get('a'); // cell 0, top left
+        for (int c = 'b'; c <= 'e'; c++) {
+            cache.get(c); // e takes the cell of a
+        }
+        assertFalse(cache.contains('a'));
+
+        Glyph again = cache.get('a'); // evicts b and is baked into its cell, top right
+        assertNotSame(first, again);
+        assertEquals(1, again.getSlot());
+        float cell = CELL_SIZE / (float) ATLAS_SIZE;
+        float glyph = FakeRasterizer.GLYPH_SIZE / (float) ATLAS_SIZE;
+        assertEquals(cell, again.u0);
+        assertEquals(0.0f, again.v0);
+        assertEquals(cell + glyph, again.u1);
+        assertEquals(glyph, again.v1);
+        assertNotEquals(first.u0, again.u0);
+    }
+}
@@ -0,0 +1,66 @@
+package renderer.font;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextLayoutTest {
+    private static final float BASE_SIZE = 16.0f;
+
+    private static GlyphCache cache() {
+        return new GlyphCache(new FakeRasterizer(), BASE_SIZE, 256, 16);
+    }
+
+    @Test
+    void penAdvancesByTheScaledAdvanceAndSkipsEmptyGlyphs() {
+        float size = 32.0f; // twice the base size
+        float advance = FakeRasterizer.ADVANCE * 2.0f;
+        TextLayout layout = TextLayout.build("ab c", size, cache());
+
+        assertEquals(3, layout.getGlyphCount()); // the space is not drawn
+        assertEquals(0.0f, layout.getX(0));
+        assertEquals(advance, layout.getX(1));
+        assertEquals(3 * advance, layout.getX(2)); // the space still moves the pen
+        assertEquals('c', layout.getCodepoint(2));
+        assertEquals(4 * advance, layout.getWidth());
+    }
+
+    @Test
+    void kerningIsAddedBetweenPairs() {
+        TextLayout layout = TextLayout.build("AVA", BASE_SIZE, cache());
+
+        assertEquals(FakeRasterizer.ADVANCE + FakeRasterizer.KERNING_AV, layout.getX(1));
+        assertEquals(2 * FakeRasterizer.ADVANCE + FakeRasterizer.KERNING_AV, layout.getX(2));
+    }
+
+    @Test
+    void lineBreaksStartALineBelowAtTheLeft() {
+        TextLayout layout = TextLayout.build("ab\ncde", BASE_SIZE, cache());
+        float ascent = BASE_SIZE * 0.75f, lineHeight = BASE_SIZE * 1.25f;
+
+        assertEquals(5, layout.getGlyphCount());
+        assertEquals(-ascent, layout.getY(0));
+        assertEquals(0.0f, layout.getX(2));
+        assertEquals(-ascent - lineHeight, layout.getY(2));
+        assertEquals(3 * FakeRasterizer.ADVANCE, layout.getWidth()); // the longest line
+        assertEquals(2 * lineHeight, layout.getHeight());
+    }
+
+    @Test
+    void layoutCacheHitsOnTheSameStringAndSizeOnly() {
+        TextLayoutCache layouts = new TextLayoutCache(cache(), 8);
+
+        TextLayout first = layouts.get("score", 16.0f);
+        TextLayout second = layouts.get(new String("score"), 16.0f);
+        assertSame(first, second);
+        assertEquals(1, layouts.getHits());
+        assertEquals(1, layouts.getMisses());
+
+        TextLayout bigger = layouts.get("score", 24.0f);
+        assertNotSame(first, bigger);
+        assertEquals(24.0f, bigger.getSize());
+        assertEquals(1, layouts.getHits());
+        assertEquals(2, layouts.getMisses());
+        assertEquals(2, layouts.size());
+    }
+}